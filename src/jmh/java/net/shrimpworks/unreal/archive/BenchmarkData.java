@@ -0,0 +1,61 @@
+package net.shrimpworks.unreal.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.shrimpworks.unreal.archive.content.Content;
+import net.shrimpworks.unreal.archive.content.SyntheticCorpus;
+
+/**
+ * Shared set-up for benchmarks.
+ */
+public class BenchmarkData {
+
+	/**
+	 * Generate synthetic content.
+	 *
+	 * @param count number of items to generate
+	 * @param seed  random seed, so the same content is generated each run
+	 * @return generated content
+	 */
+	public static List<Content> content(int count, long seed) {
+		SyntheticCorpus corpus = new SyntheticCorpus(count, seed);
+		return IntStream.range(0, count).mapToObj(corpus::content).collect(Collectors.toList());
+	}
+
+	/**
+	 * Write content metadata to a directory tree, in the same layout used by
+	 * the content manager.
+	 *
+	 * @param root    root directory
+	 * @param content content to write
+	 * @throws IOException failed to write content
+	 */
+	public static void write(Path root, Collection<Content> content) throws IOException {
+		for (Content c : content) SyntheticCorpus.write(c, root);
+	}
+
+	/**
+	 * Copy a test fixture to a directory.
+	 *
+	 * @param resource resource name, relative to the content package
+	 * @param dir      directory to copy to
+	 * @return the copied file
+	 * @throws IOException failed to copy the fixture
+	 */
+	public static Path fixture(String resource, Path dir) throws IOException {
+		Path file = dir.resolve(Util.fileName(resource));
+		try (InputStream is = Content.class.getResourceAsStream(resource)) {
+			if (is == null) throw new IOException("Fixture not found: " + resource);
+			Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+}
@@ -0,0 +1,55 @@
+package net.shrimpworks.unreal.archive;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import net.shrimpworks.unreal.archive.content.Content;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class YAMLBenchmark {
+
+	private Path file;
+	private Content content;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		content = BenchmarkData.content(1, 1L).get(0);
+		file = Files.createTempFile("bench-yaml", ".yml");
+		Files.write(file, YAML.toString(content).getBytes());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Content fromFile() throws IOException {
+		return YAML.fromFile(file, Content.class);
+	}
+
+	@Benchmark
+	public String toYaml() throws IOException {
+		return YAML.toString(content);
+	}
+}
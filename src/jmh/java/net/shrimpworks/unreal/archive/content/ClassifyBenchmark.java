@@ -0,0 +1,64 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassifyBenchmark {
+
+	@Param({ "maps/dm-longestyard.zip", "skins/ut2004skin.zip" })
+	public String fixture;
+
+	private Path tmp;
+	private Submission submission;
+	private Incoming incoming;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		tmp = Files.createTempDirectory("bench-classify");
+		submission = new Submission(BenchmarkData.fixture(fixture, tmp));
+		incoming = new Incoming(submission, new IndexLog(submission)).prepare();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		incoming.close();
+		ArchiveUtil.cleanPath(tmp);
+	}
+
+	@Benchmark
+	public ContentType classify() {
+		return ContentType.classify(incoming);
+	}
+
+	@Benchmark
+	public ContentType prepareAndClassify() throws IOException {
+		try (Incoming fresh = new Incoming(submission, new IndexLog(submission)).prepare()) {
+			return ContentType.classify(fresh);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.BenchmarkData;
+import net.shrimpworks.unreal.archive.storage.DataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ContentManagerBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int items;
+
+	private Path root;
+	private ContentManager manager;
+	private Content sample;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		root = Files.createTempDirectory("bench-content");
+		List<Content> content = BenchmarkData.content(items, 1L);
+		BenchmarkData.write(root, content);
+		sample = content.get(content.size() / 2);
+
+		manager = load();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		ArchiveUtil.cleanPath(root);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ContentManager load() throws IOException {
+		return new ContentManager(root, new DataStore.NopStore(), new DataStore.NopStore(), new DataStore.NopStore());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Collection<Content> searchByName() {
+		return manager.search(null, null, sample.name, null);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Collection<Content> searchByGameAndAuthor() {
+		return manager.search(sample.game, null, null, sample.author);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Collection<Content> forName() {
+		return manager.forName(sample.name);
+	}
+}
@@ -0,0 +1,68 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.BenchmarkData;
+import net.shrimpworks.unreal.packages.Package;
+import net.shrimpworks.unreal.packages.entities.ExportedObject;
+import net.shrimpworks.unreal.packages.entities.properties.Property;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScreenshotsBenchmark {
+
+	private Path tmp;
+	private Incoming incoming;
+	private Package map;
+	private Property screenshot;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		tmp = Files.createTempDirectory("bench-screenshots");
+		Submission submission = new Submission(BenchmarkData.fixture("maps/dm-longestyard.zip", tmp));
+		incoming = new Incoming(submission, new IndexLog(submission)).prepare();
+
+		// find the map's screenshot property the same way the map indexer does
+		map = incoming.files(Incoming.FileType.MAP).iterator().next().asPackage();
+		screenshot = map.objectsByClassName("LevelInfo").stream()
+						.map(ExportedObject::object)
+						.map(o -> o.property("Screenshot"))
+						.filter(p -> p != null)
+						.findFirst()
+						.orElseThrow(() -> new IllegalStateException("Map fixture has no screenshot"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		incoming.close();
+		ArchiveUtil.cleanPath(tmp);
+	}
+
+	@Benchmark
+	public List<BufferedImage> screenshots() {
+		return IndexUtils.screenshots(incoming, map, screenshot);
+	}
+}
@@ -0,0 +1,70 @@
+package net.shrimpworks.unreal.archive.www;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.BenchmarkData;
+import net.shrimpworks.unreal.archive.content.Content;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders the latest content listing page, as output by
+ * {@link net.shrimpworks.unreal.archive.www.content.Latest}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TemplatesBenchmark {
+
+	@Param({ "1000" })
+	public int items;
+
+	private Path root;
+	private NavigableMap<LocalDate, List<Content>> latest;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		root = Files.createTempDirectory("bench-www");
+		latest = new TreeMap<>(BenchmarkData.content(items, 1L).stream()
+											.collect(Collectors.groupingBy(c -> c.firstIndex.toLocalDate())))
+				.descendingMap();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		ArchiveUtil.cleanPath(root);
+	}
+
+	@Benchmark
+	public SiteMap.Page latest() {
+		Path section = root.resolve("latest");
+		Templates.PageSet pages = new Templates.PageSet("content/latest", root, root.resolve("static"), section);
+		return pages.add("index.ftl", SiteMap.Page.weekly(0.97f), "Latest Content Additions")
+					.put("latest", latest)
+					.write(section.resolve("index.html"));
+	}
+}
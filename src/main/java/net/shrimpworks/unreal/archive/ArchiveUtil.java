@@ -2,19 +2,26 @@ package net.shrimpworks.unreal.archive;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class ArchiveUtil {
 
@@ -42,20 +49,52 @@ public class ArchiveUtil {
 
 	public static boolean isArchive(Path path) {
 		if (!Files.isRegularFile(path)) return false;
-		return ARCHIVES.contains(Util.extension(path.toString().toLowerCase()));
+		return isArchive(path.toString());
+	}
+
+	/**
+	 * Check whether a file name looks like an archive, based only on its
+	 * extension.
+	 *
+	 * @param fileName file name or path
+	 * @return true if the file name has a known archive extension
+	 */
+	public static boolean isArchive(String fileName) {
+		return ARCHIVES.contains(Util.extension(fileName.toLowerCase()));
 	}
 
 	public static Path extract(Path source, Path destination, Duration timeout)
 			throws IOException, InterruptedException, BadArchiveException {
-		return extract(source, destination, timeout, false, new HashSet<>());
+		return extract(source, destination, timeout, false, new HashSet<>(), null);
 	}
 
 	public static Path extract(Path source, Path destination, Duration timeout, boolean recursive)
 			throws IOException, InterruptedException, BadArchiveException {
-		return extract(source, destination, timeout, recursive, new HashSet<>());
+		return extract(source, destination, timeout, recursive, new HashSet<>(), null);
 	}
 
-	private static Path extract(Path source, Path destination, Duration timeout, boolean recursive, Set<Path> visited)
+	/**
+	 * Extract an archive, recording the SHA-1 hashes of files as they are
+	 * written.
+	 * <p>
+	 * Hashes are only known for files unpacked in-process, which is the case
+	 * for most zip files. Files unpacked by external tools are not recorded,
+	 * and should be hashed separately if needed.
+	 *
+	 * @param source      archive to extract
+	 * @param destination directory to extract to
+	 * @param timeout     maximum time to spend extracting each archive
+	 * @param recursive   also extract archives found within the archive
+	 * @param hashes      file hashes will be added to this map, keyed by file path
+	 * @return the destination directory
+	 */
+	public static Path extract(Path source, Path destination, Duration timeout, boolean recursive, Map<String, String> hashes)
+			throws IOException, InterruptedException, BadArchiveException {
+		return extract(source, destination, timeout, recursive, new HashSet<>(), hashes);
+	}
+
+	private static Path extract(Path source, Path destination, Duration timeout, boolean recursive, Set<Path> visited,
+								Map<String, String> hashes)
 			throws IOException, InterruptedException, BadArchiveException {
 
 		if (!Files.isDirectory(destination)) Files.createDirectories(destination);
@@ -65,6 +104,8 @@ public class ArchiveUtil {
 		String ext = Util.extension(source).toLowerCase();
 		switch (ext) {
 			case "zip":
+				result = unzip(source, destination, timeout, hashes);
+				break;
 			case "7z":
 			case "lzh":
 			case "lza":
@@ -92,7 +133,7 @@ public class ArchiveUtil {
 
 			for (Path path : next) {
 				try {
-					if (!visited.contains(path)) extract(path, result.resolve(Util.plainName(path)), timeout, recursive, visited);
+					if (!visited.contains(path)) extract(path, result.resolve(Util.plainName(path)), timeout, recursive, visited, hashes);
 				} catch (Exception e) {
 					// be lenient with recursive extraction...
 				}
@@ -213,6 +254,75 @@ public class ArchiveUtil {
 		return destination;
 	}
 
+	/**
+	 * Unpack a zip file in-process, falling back to 7-Zip if the archive
+	 * cannot be read.
+	 * <p>
+	 * Many older archives use compression methods or file name encodings
+	 * which are not supported by {@link ZipFile}, in which case any partially
+	 * unpacked content is discarded and the archive is handed to 7-Zip.
+	 * <p>
+	 * Archives with entries which would be unpacked outside of the
+	 * destination are rejected outright, rather than being passed on.
+	 * <p>
+	 * If hashes are requested, they're only recorded once all files have
+	 * been unpacked in-process.
+	 */
+	private static Path unzip(Path source, Path destination, Duration timeout, Map<String, String> hashes)
+			throws IOException, InterruptedException, BadArchiveException {
+		try {
+			Map<String, String> unpacked = hashes == null ? null : new HashMap<>();
+			unzip(source, destination, System.nanoTime() + timeout.toNanos(), unpacked);
+			if (hashes != null) hashes.putAll(unpacked);
+			return destination;
+		} catch (BadArchiveException e) {
+			cleanPath(destination);
+			throw e;
+		} catch (IOException | IllegalArgumentException e) {
+			cleanPath(destination);
+			Files.createDirectories(destination);
+			return exec(sevenZipCmd(source, destination), source, destination, timeout);
+		}
+	}
+
+	private static Path unzip(Path source, Path destination, long deadline, Map<String, String> hashes) throws IOException {
+		final Path root = destination.toAbsolutePath().normalize();
+
+		try (ZipFile zip = new ZipFile(source.toFile())) {
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				if (System.nanoTime() > deadline) {
+					throw new IllegalStateException(String.format("Timed out unpacking file %s", source));
+				}
+
+				final ZipEntry entry = entries.nextElement();
+
+				// some archives created on Windows use backslashes as path separators
+				final Path target = root.resolve(entry.getName().replaceAll("\\\\", "/")).normalize();
+				if (!target.startsWith(root)) {
+					throw new BadArchiveException(String.format("Entry %s in %s is outside the destination", entry.getName(), source));
+				}
+
+				if (entry.isDirectory()) {
+					Files.createDirectories(target);
+					continue;
+				}
+
+				Files.createDirectories(target.getParent());
+				if (hashes != null) {
+					hashes.put(target.toString(), Util.copyAndHash(zip.getInputStream(entry), target, StandardCopyOption.REPLACE_EXISTING));
+				} else {
+					try (InputStream is = zip.getInputStream(entry)) {
+						Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				if (entry.getLastModifiedTime() != null) Files.setLastModifiedTime(target, entry.getLastModifiedTime());
+			}
+		}
+
+		return destination;
+	}
+
 	public static Path createZip(Path source, Path destination, Duration timeout)
 			throws IOException, InterruptedException, IllegalStateException {
 
@@ -0,0 +1,57 @@
+package net.shrimpworks.unreal.archive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Compact binary (Smile) serialisation, sharing the same mapping rules
+ * as {@link YAML}.
+ * <p>
+ * Intended for local caches which are expensive to rebuild from YAML,
+ * not for anything which should be human-readable or version controlled.
+ */
+public class Binary {
+
+	private static final ObjectMapper MAPPER = YAML.configure(new ObjectMapper(new SmileFactory()));
+
+	private static final int BUFFER_SIZE = 1024 * 64;
+
+	/**
+	 * Write an object to a file.
+	 * <p>
+	 * The output is written to a temporary file alongside the destination
+	 * and moved into place once complete, so a partially written file will
+	 * never be observed by readers.
+	 *
+	 * @param object object to write
+	 * @param path   destination file
+	 * @throws IOException failed to write the file
+	 */
+	public static void toFile(Object object, Path path) throws IOException {
+		Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream os = Files.newOutputStream(tmp)) {
+				MAPPER.writeValue(os, object);
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	public static <T> T fromFile(Path path, Class<T> type) throws IOException {
+		try (InputStream is = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+			return MAPPER.readValue(is, type);
+		} catch (Exception e) {
+			throw new IOException("Failed to read binary file " + path.toString(), e);
+		}
+	}
+}
@@ -29,13 +29,18 @@ import java.util.stream.Stream;
 import net.shrimpworks.unreal.archive.content.Content;
 import net.shrimpworks.unreal.archive.content.ContentManager;
 import net.shrimpworks.unreal.archive.content.ContentType;
+import net.shrimpworks.unreal.archive.content.HashCache;
+import net.shrimpworks.unreal.archive.content.ImageEncoder;
 import net.shrimpworks.unreal.archive.content.IndexResult;
+import net.shrimpworks.unreal.archive.content.IndexUtils;
 import net.shrimpworks.unreal.archive.content.Indexer;
 import net.shrimpworks.unreal.archive.content.Scanner;
+import net.shrimpworks.unreal.archive.content.SyntheticCorpus;
 import net.shrimpworks.unreal.archive.docs.DocumentManager;
 import net.shrimpworks.unreal.archive.managed.Managed;
 import net.shrimpworks.unreal.archive.managed.ManagedContentManager;
 import net.shrimpworks.unreal.archive.mirror.MirrorClient;
+import net.shrimpworks.unreal.archive.mirror.MirrorManifest;
 import net.shrimpworks.unreal.archive.scraper.AutoIndexPHPScraper;
 import net.shrimpworks.unreal.archive.scraper.Downloader;
 import net.shrimpworks.unreal.archive.scraper.FPSNetwork;
@@ -48,6 +53,7 @@ import net.shrimpworks.unreal.archive.storage.DataStore;
 import net.shrimpworks.unreal.archive.www.Documents;
 import net.shrimpworks.unreal.archive.www.Index;
 import net.shrimpworks.unreal.archive.www.ManagedContent;
+import net.shrimpworks.unreal.archive.www.PageManifest;
 import net.shrimpworks.unreal.archive.www.SiteMap;
 import net.shrimpworks.unreal.archive.www.Submit;
 import net.shrimpworks.unreal.archive.www.Templates;
@@ -65,6 +71,8 @@ public class Main {
 
 	private static final String CONTENT_DIR = "content";
 	private static final String DOCUMENTS_DIR = "documents";
+	private static final String WWW_MANIFEST = ".www-manifest";
+	private static final String MIRROR_MANIFEST = ".mirror-manifest";
 
 	private static final Path TMP = Paths.get(System.getProperty("java.io.tmpdir"));
 	private static final String CONTENT_URL = System.getenv().getOrDefault("UA_CONTENT_URL",
@@ -78,6 +86,10 @@ public class Main {
 			System.exit(1);
 		}
 
+		final long httpTimeout = Long.parseLong(cli.option("http-timeout", "0"));
+		Util.httpTimeouts(Duration.ofSeconds(Long.parseLong(cli.option("http-connect-timeout", "30"))),
+						  httpTimeout > 0 ? Duration.ofSeconds(httpTimeout) : null);
+
 		switch (cli.commands()[0].toLowerCase()) {
 			case "index":
 				index(contentManager(cli), cli);
@@ -115,6 +127,9 @@ public class Main {
 			case "unpack":
 				unpack(cli);
 				break;
+			case "generate":
+				generate(cli);
+				break;
 			default:
 				System.out.printf("Command \"%s\" has not been implemented!%n%n", cli.commands()[0]);
 				usage();
@@ -230,8 +245,8 @@ public class Main {
 		}));
 
 		final long start = System.currentTimeMillis();
-		final ContentManager contentManager = new ContentManager(contentPath.resolve(CONTENT_DIR), contentStore, imageStore,
-																 attachmentStore);
+		final ContentManager contentManager = new ContentManager(contentPath.resolve(CONTENT_DIR), contentSnapshot(cli, contentPath),
+																 contentStore, imageStore, attachmentStore);
 		final double gigs = (contentManager.fileSize() / 1024d / 1024d / 1024d);
 		System.err.printf("Loaded content index with %d items (%.2fGB) in %.2fs%n",
 						  contentManager.size(), gigs, (System.currentTimeMillis() - start) / 1000f);
@@ -239,6 +254,36 @@ public class Main {
 		return contentManager;
 	}
 
+	/**
+	 * Resolve the location of the binary content snapshot used to speed up
+	 * loading of the content index.
+	 * <p>
+	 * Defaults to a file within the system temp directory unique to the
+	 * content path. Specifying an empty <code>--content-cache=</code> option
+	 * disables the snapshot entirely.
+	 */
+	private static Path contentSnapshot(CLI cli, Path contentPath) {
+		String snapshot = cli.option("content-cache", null);
+		if (snapshot == null) {
+			return TMP.resolve("ua-cache")
+					  .resolve(String.format("content-%08x.cache", contentPath.toAbsolutePath().toString().hashCode()));
+		}
+		if (snapshot.isEmpty()) return null;
+		return Paths.get(snapshot);
+	}
+
+	/**
+	 * Load the cache of file hashes used to avoid re-hashing unchanged files
+	 * when scanning and indexing.
+	 * <p>
+	 * An empty cache path disables persistence of hashes between runs.
+	 */
+	private static HashCache hashCache(CLI cli) {
+		String path = cli.option("hash-cache", TMP.resolve("ua-cache").resolve("hashes.cache").toString());
+		boolean verify = Boolean.parseBoolean(cli.option("verify-hashes", "false"));
+		return HashCache.load(path.isEmpty() ? null : Paths.get(path), verify);
+	}
+
 	private static DocumentManager documentManager(CLI cli) throws IOException {
 		Path contentPath = contentPath(cli);
 
@@ -303,8 +348,18 @@ public class Main {
 		boolean verbose = Boolean.parseBoolean(cli.option("verbose", "true"));
 		boolean force = Boolean.parseBoolean(cli.option("force", "false"));
 		ContentType forceType = (!cli.option("type", "").isEmpty()) ? ContentType.valueOf(cli.option("type", "").toUpperCase()) : null;
+		int concurrency = Integer.parseInt(cli.option("concurrency", "1"));
+		boolean lazyExtract = Boolean.parseBoolean(cli.option("lazy-extract", "true"));
+
+		HashCache hashCache = hashCache(cli);
+
+		IndexUtils.imageEncoder(ImageEncoder.fromCli(cli));
 
-		Indexer indexer = new Indexer(contentManager, new Indexer.CLIEventPrinter(verbose));
+		// an empty metrics option disables writing metrics
+		String metrics = cli.option("index-metrics", "");
+		Indexer.CLIEventPrinter printer = new Indexer.CLIEventPrinter(verbose, metrics.isEmpty() ? null : Paths.get(metrics));
+
+		Indexer indexer = new Indexer(contentManager, printer, new Indexer.IndexerPostProcessor() {}, lazyExtract, hashCache);
 
 		Path[] paths;
 
@@ -327,7 +382,11 @@ public class Main {
 			paths = cliPaths(cli, 1);
 		}
 
-		indexer.index(force, forceType, paths);
+		try {
+			indexer.index(force, forceType, concurrency, paths);
+		} finally {
+			hashCache.save();
+		}
 	}
 
 	private static void scan(ContentManager contentManager, CLI cli) throws IOException {
@@ -336,11 +395,17 @@ public class Main {
 			System.exit(2);
 		}
 
-		Scanner scanner = new Scanner(contentManager, cli);
+		HashCache hashCache = hashCache(cli);
+
+		Scanner scanner = new Scanner(contentManager, cli, hashCache);
 
 		Path[] paths = cliPaths(cli, 1);
 
-		scanner.scan(new Scanner.CLIEventPrinter(), paths);
+		try {
+			scanner.scan(new Scanner.CLIEventPrinter(), paths);
+		} finally {
+			hashCache.save();
+		}
 	}
 
 	private static void edit(ContentManager contentManager, CLI cli) throws IOException, InterruptedException {
@@ -385,20 +450,48 @@ public class Main {
 
 		Path output = Files.createDirectories(Paths.get(cli.commands()[1])).toAbsolutePath();
 
-		System.out.printf("Writing files to %s with concurrency of %s%n",
-						  output.toString(), cli.option("concurrency", "3"));
+		final int concurrency = Integer.parseInt(cli.option("concurrency", "3"));
+		final int hostConcurrency = Integer.parseInt(cli.option("host-concurrency", Integer.toString(concurrency)));
+
+		// an empty manifest option disables the manifest, and all content will be checked
+		final String manifestPath = cli.option("mirror-manifest", output.resolve(MIRROR_MANIFEST).toString());
+		final MirrorManifest manifest = MirrorManifest.load(manifestPath.isEmpty() ? null : Paths.get(manifestPath));
+
+		System.out.printf("Writing files to %s with concurrency of %d (%d per host)%n",
+						  output.toString(), concurrency, hostConcurrency);
 
 		MirrorClient mirror = new MirrorClient(
 				contentManager,
 				output,
-				Integer.parseInt(cli.option("concurrency", "3")),
-				((total, remaining, last) -> System.out.printf("\r[ %-6s / %-6s ] Processed %-40s",
-															   total - remaining, total, last.originalFilename))
+				concurrency,
+				hostConcurrency,
+				manifest,
+				new MirrorClient.Progress() {
+					private volatile String rate = "";
+
+					@Override
+					public void progress(long total, long remaining, Content last) {
+						System.out.printf("\r[ %-6s / %-6s ] %-12s Processed %-40s",
+										  total - remaining, total, rate, last.originalFilename);
+					}
+
+					@Override
+					public void transferred(long totalBytes, long transferredBytes, double bytesPerSecond) {
+						rate = String.format("%.2f MB/s", bytesPerSecond / 1024 / 1024);
+					}
+				}
 		);
+		System.out.printf("%d items unchanged since the previous mirror%n", mirror.unchanged());
+
 		mirror.mirror();
 
+		System.out.println();
 		System.out.println("Mirror completed");
 
+		if (Boolean.parseBoolean(cli.option("prune", "false"))) {
+			System.out.printf("Removed %d files for content no longer in the archive%n", mirror.prune());
+		}
+
 		// cleanup executor
 		mirror.cancel();
 	}
@@ -424,6 +517,15 @@ public class Main {
 
 		final Path staticOutput = outputPath.resolve("static");
 
+		// record pages output, and when incremental, skip rendering of pages for which no content has changed
+		// the manifest is kept outside of the output path by default, so it does not get published with the site
+		final boolean incremental = Boolean.parseBoolean(cli.option("incremental", "false"));
+		final Path manifestPath = Paths.get(cli.option("www-manifest", outputPath.resolveSibling(
+				outputPath.getFileName() + WWW_MANIFEST).toString())).toAbsolutePath();
+		final PageManifest manifest = PageManifest.load(outputPath, manifestPath, incremental,
+														contentManager::revision, String.valueOf(localImages));
+		Templates.manifest(manifest);
+
 		final long start = System.currentTimeMillis();
 
 		// unpack static content
@@ -470,7 +572,15 @@ public class Main {
 		System.out.printf("%nGenerating sitemap%n");
 		allPages.addAll(SiteMap.siteMap(SiteMap.SITE_ROOT, outputPath, allPages, 50000).generate());
 
-		System.out.printf("Output %d pages in %.2fs%n", allPages.size(), (System.currentTimeMillis() - start) / 1000f);
+		// pages no longer output can only be identified when all sections have been generated
+		if (incremental && cli.commands().length == 2) {
+			System.out.printf("Removed %d stale pages%n", manifest.prune());
+		}
+		manifest.save();
+		Templates.manifest(null);
+
+		System.out.printf("Output %d pages (%d rendered, %d unchanged) in %.2fs%n",
+						  allPages.size(), manifest.rendered(), manifest.skipped(), (System.currentTimeMillis() - start) / 1000f);
 	}
 
 	private static void summary(ContentManager contentManager) {
@@ -624,25 +734,63 @@ public class Main {
 		}
 	}
 
+	private static void generate(CLI cli) throws IOException {
+		if (cli.commands().length < 2) {
+			System.err.println("An output path should be provided!");
+			System.exit(2);
+		}
+
+		final Path output = Paths.get(cli.commands()[1]).toAbsolutePath();
+		final int count = Integer.parseInt(cli.option("count", "1000"));
+
+		System.out.printf("Generating %d items in %s%n", count, output);
+
+		new SyntheticCorpus(count, Long.parseLong(cli.option("seed", "1")))
+				.write(output, Boolean.parseBoolean(cli.option("submissions", "false")),
+					   Integer.parseInt(cli.option("payload", "16384")),
+					   n -> {
+						   if (n % 1000 == 0 || n == count) System.out.printf("\r[ %-8s / %-8s ]", n, count);
+					   });
+
+		System.out.println();
+		System.out.println("Generation completed");
+	}
+
 	private static void usage() {
 		System.out.println("Unreal Archive");
 		System.out.println("Usage: unreal-archive.jar <command> [options]");
 		System.out.println();
 		System.out.println("Commands:");
-		System.out.println("  index <file ...> --content-path=<path> [--force=<true|false>]");
+		System.out.println("  index <file ...> --content-path=<path> [--force=<true|false>] [--concurrency=<count>]");
+		System.out.println("        [--index-metrics=<file>]");
 		System.out.println("    Index the contents of files or paths, writing the results to <content-path>.");
 		System.out.println("    Optionally force re-indexing of existing content, rather than skipping it.");
+		System.out.println("    Optionally specify the number of files to extract and index concurrently via <count>, defaults to 1.");
+		System.out.println("    Optionally write the time spent in each stage of indexing to [index-metrics], as JSON if the");
+		System.out.println("    file name ends with .json, otherwise in Prometheus text format.");
 		System.out.println("  sync <kind> --content-path=<path>");
 		System.out.println("    Sync managed files' local files to remote storage.");
-		System.out.println("  scan <file ...> --content-path=<path>");
+		System.out.println("  scan <file ...> --content-path=<path> [--concurrency=<count>] [--unordered=<true|false>]");
 		System.out.println("    Dry-run scan the contents of files or paths, comparing to known content where possible.");
+		System.out.println("    Optionally specify the number of files to scan concurrently via <count>, defaults to 1.");
+		System.out.println("    When scanning concurrently, results are output in order unless [unordered] is true.");
 		System.out.println("  edit <hash> --content-path=<path>");
 		System.out.println("    Edit the metadata for the <hash> provided. Relies on `sensible-editor` on Linux.");
-		System.out.println("  mirror <output-path> --content-path=<path> [--concurrency=<count>]");
+		System.out.println("  mirror <output-path> --content-path=<path> [--concurrency=<count>] [--host-concurrency=<count>]");
+		System.out.println("         [--prune=<true|false>] [--mirror-manifest=<file>]");
 		System.out.println("    Create a local mirror of the content in <content-path> in local directory <output-path>.");
 		System.out.println("    Optionally specify the number of concurrent downloads via <count>, defaults to 3.");
-		System.out.println("  www <output-path> [docs|content] --content-path=<path>");
+		System.out.println("    Downloads from any single host are limited by [host-concurrency], defaults to [concurrency].");
+		System.out.println("    Verified files are recorded in [mirror-manifest], and are not checked again on later runs.");
+		System.out.println("    Defaults to a .mirror-manifest file in <output-path>, leave empty to disable.");
+		System.out.println("    When [prune] is true, files for content no longer in the archive are deleted.");
+		System.out.println("  www <output-path> [docs|content] --content-path=<path> [--incremental=<true|false>]");
+		System.out.println("         [--www-manifest=<file>]");
 		System.out.println("    Generate the HTML website for browsing content.");
+		System.out.println("    When [incremental] is true, only pages affected by content changes since the previous build");
+		System.out.println("    are rendered, and pages for removed content are deleted.");
+		System.out.println("    Pages output are recorded in [www-manifest], which defaults to a <output-path>.www-manifest");
+		System.out.println("    file alongside <output-path>.");
 		System.out.println("  summary --content-path=<path>");
 		System.out.println("    Show stats and counters for the content index in <content-path>");
 		System.out.println("  ls [--game=<game>] [--type=<type>] [--author=<author>] --content-path=<path>");
@@ -659,5 +807,39 @@ public class Main {
 		System.out.println("    Download previously-scraped files defined in the file <file-list>, and write");
 		System.out.println("    them out to <output-path>, along with a YML file containing the original URL.");
 		System.out.println("    [slowdown] will cause the downloader to pause between downloads, defaults to 2000ms.");
+		System.out.println("  generate <output-path> [--count=<count>] [--seed=<seed>] [--submissions=<true|false>] [--payload=<bytes>]");
+		System.out.println("    Generate synthetic content for load testing, writing <count> items, defaults to 1000, to");
+		System.out.println("    <output-path>/content. The same [seed] always produces the same content, defaults to 1.");
+		System.out.println("    When [submissions] is true, zip files which may be indexed are also written to");
+		System.out.println("    <output-path>/submissions, with [payload] bytes of random data per package, defaults to 16384.");
+		System.out.println("    Generated content is not real, and must not be written to a real content path.");
+		System.out.println();
+		System.out.println("Options:");
+		System.out.println("  --content-cache=<file>");
+		System.out.println("    Location of the binary snapshot used to speed up loading of the content index.");
+		System.out.println("    Defaults to a file in the system temp directory, leave empty to disable.");
+		System.out.println("  --hash-cache=<file>");
+		System.out.println("    Location of the cache of file hashes, used to skip re-hashing unchanged files when");
+		System.out.println("    scanning and indexing. Defaults to a file in the system temp directory, leave empty to disable.");
+		System.out.println("  --verify-hashes=<true|false>");
+		System.out.println("    Ignore cached file hashes and hash all files again, updating the cache. Defaults to false.");
+		System.out.println("  --lazy-extract=<true|false>");
+		System.out.println("    When indexing or scanning zip files, only extract the files which are actually read.");
+		System.out.println("    Defaults to true.");
+		System.out.println("  --image-format=<png|jpeg|webp>");
+		System.out.println("    Format screenshots and other images are written in when indexing. Defaults to png.");
+		System.out.println("    WebP requires an image writer plugin, without which png is used.");
+		System.out.println("  --image-compression=<0-9>");
+		System.out.println("    PNG compression level, from 0 (fastest) to 9 (smallest). Defaults to the encoder default.");
+		System.out.println("  --image-quality=<0-100>");
+		System.out.println("    JPEG and WebP image quality. Defaults to 90.");
+		System.out.println("  --image-threads=<count>");
+		System.out.println("    Number of threads used to encode and write images while indexing. Defaults to half the");
+		System.out.println("    available processors.");
+		System.out.println("  --http-connect-timeout=<seconds>");
+		System.out.println("    Time allowed to connect to a server when downloading or uploading. Defaults to 30.");
+		System.out.println("  --http-timeout=<seconds>");
+		System.out.println("    Time allowed to wait for a response from a server once connected. Defaults to 0,");
+		System.out.println("    to wait indefinitely.");
 	}
 }
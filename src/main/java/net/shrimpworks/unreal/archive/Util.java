@@ -2,26 +2,40 @@ package net.shrimpworks.unreal.archive;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.Normalizer;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,6 +43,10 @@ public final class Util {
 
 	private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
 
+	// large direct buffers are re-used per thread, since files being hashed are often many megabytes in size
+	private static final int HASH_BUFFER_SIZE = 1024 * 256;
+	private static final ThreadLocal<ByteBuffer> HASH_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(HASH_BUFFER_SIZE));
+
 	private static final Map<String, String> MIME_TYPES = new HashMap<String, String>() {{
 		put("bmp", "image/bmp");
 		put("bz", "application/x-bzip");
@@ -68,6 +86,15 @@ public final class Util {
 
 	private static final Pattern UC_WORDS = Pattern.compile("\\b(.)(.*?)\\b");
 
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-");
+	private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+	private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+	// a single client is shared for all HTTP requests, so connections to the same hosts are re-used
+	private static volatile HttpClient httpClient = httpClient(DEFAULT_CONNECT_TIMEOUT);
+	private static volatile Duration requestTimeout = null;
+
 	private Util() { }
 
 	public static String extension(Path path) {
@@ -122,9 +149,10 @@ public final class Util {
 
 	public static String hash(Path path) throws IOException {
 		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
-			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			MessageDigest md = sha1();
 
-			ByteBuffer buffer = ByteBuffer.allocate(4096);
+			ByteBuffer buffer = HASH_BUFFER.get();
+			buffer.clear();
 
 			while (channel.read(buffer) > 0) {
 				buffer.flip();
@@ -132,12 +160,53 @@ public final class Util {
 				buffer.clear();
 			}
 
-			return bytesToHex(md.digest()).toLowerCase();
+			return hex(md);
+		}
+	}
+
+	public static String hash(InputStream stream) throws IOException {
+		MessageDigest md = sha1();
+
+		byte[] buffer = new byte[HASH_BUFFER_SIZE];
+
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			md.update(buffer, 0, read);
+		}
+
+		return hex(md);
+	}
+
+	/**
+	 * Copy a stream to a file, computing the SHA-1 hash of the content as
+	 * it is written, so the file does not need to be read again to hash it.
+	 *
+	 * @param stream      stream to copy from
+	 * @param destination file to write to
+	 * @param options     copy options
+	 * @return the hash of the copied content
+	 * @throws IOException failed to read or write
+	 */
+	public static String copyAndHash(InputStream stream, Path destination, CopyOption... options) throws IOException {
+		MessageDigest md = sha1();
+		try (InputStream is = new DigestInputStream(stream, md)) {
+			Files.copy(is, destination, options);
+		}
+		return hex(md);
+	}
+
+	private static MessageDigest sha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
 		} catch (NoSuchAlgorithmException e) {
 			throw new IllegalArgumentException(e);
 		}
 	}
 
+	private static String hex(MessageDigest md) {
+		return bytesToHex(md.digest()).toLowerCase();
+	}
+
 	public static String mimeType(String ext) {
 		return MIME_TYPES.getOrDefault(ext, "application/octet-stream");
 	}
@@ -169,79 +238,243 @@ public final class Util {
 					   .replaceAll("&", "%26");
 	}
 
+	/**
+	 * Configure the timeouts used for HTTP requests.
+	 * <p>
+	 * This replaces the shared HTTP client, and should be done before any
+	 * requests are made.
+	 *
+	 * @param connectTimeout time allowed to establish a connection
+	 * @param requestTimeout time allowed to receive a response once
+	 *                       connected, or null to wait indefinitely
+	 */
+	public static void httpTimeouts(Duration connectTimeout, Duration requestTimeout) {
+		Util.httpClient = httpClient(connectTimeout);
+		Util.requestTimeout = requestTimeout;
+	}
+
+	private static HttpClient httpClient(Duration connectTimeout) {
+		return HttpClient.newBuilder()
+						 .version(HttpClient.Version.HTTP_2)
+						 .followRedirects(HttpClient.Redirect.NORMAL)
+						 .connectTimeout(connectTimeout)
+						 .build();
+	}
+
+	private static HttpRequest.Builder request(String url) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(httpUri(url));
+		Duration timeout = requestTimeout;
+		if (timeout != null) builder.timeout(timeout);
+		return builder;
+	}
+
+	private static URI httpUri(String url) {
+		try {
+			return URI.create(url);
+		} catch (IllegalArgumentException e) {
+			// not already encoded
+			return toUri(url);
+		}
+	}
+
+	private static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+		for (int attempt = 0; ; attempt++) {
+			final AtomicBoolean responded = new AtomicBoolean(false);
+			try {
+				return httpClient.send(request, info -> {
+					responded.set(true);
+					return handler.apply(info);
+				});
+			} catch (HttpTimeoutException e) {
+				throw e;
+			} catch (IOException e) {
+				// a pooled connection may have been closed by the server while idle, in which case
+				// no response is received, and the request is safe to try once more on a new connection
+				if (responded.get() || attempt > 0) throw e;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted during request to " + request.uri());
+			}
+		}
+	}
+
+	/**
+	 * Download a file.
+	 * <p>
+	 * If the output path is a directory, the file will be written within it,
+	 * named according to the response's <code>Content-Disposition</code>
+	 * header if present, or the URL otherwise.
+	 *
+	 * @param url    URL to download
+	 * @param output file or directory to download to
+	 * @return the downloaded file
+	 * @throws IOException the download failed, or the output file exists
+	 */
 	public static Path downloadTo(String url, Path output) throws IOException {
-		URL urlConnection = new URL(url);
-		HttpURLConnection httpConn = (HttpURLConnection)urlConnection.openConnection();
-		int responseCode = httpConn.getResponseCode();
-
-		Path saveTo = output;
-
-		// always check HTTP response code first
-		if (responseCode == HttpURLConnection.HTTP_OK) {
-
-			// if we're saving to a directory and not a specific file, try to determine the filename to save to
-			if (Files.isDirectory(saveTo)) {
-				String disposition = httpConn.getHeaderField("Content-Disposition");
-				if (disposition != null && !disposition.trim().isEmpty()) {
-					Matcher matcher = DISPOSITION_FILENAME.matcher(disposition);
-					if (matcher.find()) {
-						saveTo = saveTo.resolve(fileName(matcher.group(1)));
-					}
-				}
+		final boolean toDirectory = Files.isDirectory(output);
+
+		// when the file name is not yet known, the response is written to a temporary file and renamed afterwards
+		final Path target = toDirectory ? Files.createTempFile(output, ".download-", ".tmp") : output;
+		final OpenOption[] options = toDirectory
+				? new OpenOption[] { StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING }
+				: new OpenOption[] { StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE };
+
+		try {
+			HttpResponse<Path> response = send(request(url).GET().build(), info -> info.statusCode() == HttpURLConnection.HTTP_OK
+					? HttpResponse.BodySubscribers.ofFile(target, options)
+					: HttpResponse.BodySubscribers.replacing(null));
+
+			// always check HTTP response code first
+			if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException(response.statusCode() + " Failed to download url " + url);
+			}
+
+			if (!toDirectory) return target;
 
-				// fallback, just use the filename from the url
-				if (Files.isDirectory(saveTo)) saveTo = saveTo.resolve(fileName(httpConn.getURL().getPath()));
+			// we're saving to a directory and not a specific file, try to determine the filename to save to
+			Path saveTo = output;
+			String disposition = response.headers().firstValue("Content-Disposition").orElse(null);
+			if (disposition != null && !disposition.trim().isEmpty()) {
+				Matcher matcher = DISPOSITION_FILENAME.matcher(disposition);
+				if (matcher.find()) {
+					saveTo = saveTo.resolve(fileName(matcher.group(1)));
+				}
 			}
 
-			// opens input stream from the HTTP connection
-			Files.copy(httpConn.getInputStream(), saveTo);
-		} else {
-			throw new IOException(responseCode + " Failed to download url " + url);
+			// fallback, just use the filename from the url
+			if (Files.isDirectory(saveTo)) saveTo = saveTo.resolve(fileName(response.uri().getPath()));
+
+			return Files.move(target, saveTo);
+		} finally {
+			if (toDirectory) Files.deleteIfExists(target);
 		}
-		httpConn.disconnect();
+	}
 
-		return saveTo;
+	/**
+	 * Download a file, continuing from the end of a previous partial download
+	 * of the same file if the server supports range requests.
+	 * <p>
+	 * If the server does not support range requests, the whole file is
+	 * downloaded again. Since there is no guarantee the existing partial
+	 * content is correct, the result should be verified by the caller.
+	 *
+	 * @param url    URL to download
+	 * @param output file to download to, which may contain a partial download
+	 * @return the downloaded file
+	 * @throws IOException the download failed
+	 */
+	public static Path resumeDownloadTo(String url, Path output) throws IOException {
+		return resumeDownloadTo(url, output, null);
 	}
 
-	public static void urlRequest(String url, Consumer<HttpURLConnection> onOK) throws IOException {
-		URL urlConnection = new URL(url);
-		HttpURLConnection httpConn = (HttpURLConnection)urlConnection.openConnection();
-		int responseCode = httpConn.getResponseCode();
+	/**
+	 * Download a file, continuing from the end of a previous partial download
+	 * of the same file if the server supports range requests, reporting the
+	 * number of bytes received as the download progresses.
+	 *
+	 * @param url      URL to download
+	 * @param output   file to download to, which may contain a partial
+	 *                 download
+	 * @param received receives the number of bytes in each chunk of the
+	 *                 response as it is written, may be null
+	 * @return the downloaded file
+	 * @throws IOException the download failed
+	 * @see #resumeDownloadTo(String, Path)
+	 */
+	public static Path resumeDownloadTo(String url, Path output, LongConsumer received) throws IOException {
+		final long offset = Files.exists(output) ? Files.size(output) : 0;
+
+		final HttpRequest.Builder request = request(url).GET();
+		if (offset > 0) request.header("Range", "bytes=" + offset + "-");
+
+		HttpResponse<Path> response = send(request.build(), info -> {
+			if (info.statusCode() == HttpURLConnection.HTTP_PARTIAL && offset == rangeStart(info.headers())) {
+				return counting(HttpResponse.BodySubscribers.ofFile(output, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+								received);
+			} else if (info.statusCode() == HttpURLConnection.HTTP_OK) {
+				return counting(HttpResponse.BodySubscribers.ofFile(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+																	StandardOpenOption.TRUNCATE_EXISTING), received);
+			}
+			return HttpResponse.BodySubscribers.replacing(null);
+		});
+
+		// nothing beyond the end of the file, presumably it's already complete
+		if (offset > 0 && response.statusCode() == HTTP_RANGE_NOT_SATISFIABLE) return output;
 
-		if (responseCode == HttpURLConnection.HTTP_OK) {
-			onOK.accept(httpConn);
-		}
+		if (response.body() == null) throw new IOException(response.statusCode() + " Failed to download url " + url);
 
-		httpConn.disconnect();
+		return output;
 	}
 
-	public static boolean uploadTo(Path localFile, String url) throws IOException {
-		URL urlConnection = new URL(url);
-		HttpURLConnection httpConn = (HttpURLConnection)urlConnection.openConnection();
-		httpConn.setDoOutput(true);
-		httpConn.setRequestMethod("PUT");
-		httpConn.setRequestProperty("Content-Length", Long.toString(Files.size(localFile)));
-		httpConn.connect();
-
-		try (OutputStream output = httpConn.getOutputStream();
-			 InputStream input = Files.newInputStream(localFile, StandardOpenOption.READ)) {
-			byte[] buffer = new byte[4096];
-			int length;
-			while ((length = input.read(buffer)) > 0) {
-				output.write(buffer, 0, length);
+	private static <T> HttpResponse.BodySubscriber<T> counting(HttpResponse.BodySubscriber<T> subscriber, LongConsumer received) {
+		if (received == null) return subscriber;
+
+		return new HttpResponse.BodySubscriber<>() {
+			@Override
+			public CompletionStage<T> getBody() {
+				return subscriber.getBody();
 			}
-			output.flush();
 
-			return httpConn.getResponseCode() < 400;
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscriber.onSubscribe(subscription);
+			}
+
+			@Override
+			public void onNext(List<ByteBuffer> item) {
+				long bytes = 0;
+				for (ByteBuffer b : item) bytes += b.remaining();
+				subscriber.onNext(item);
+				received.accept(bytes);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				subscriber.onError(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				subscriber.onComplete();
+			}
+		};
+	}
+
+	private static long rangeStart(HttpHeaders headers) {
+		Matcher m = CONTENT_RANGE.matcher(headers.firstValue("Content-Range").orElse(""));
+		return m.find() ? Long.parseLong(m.group(1)) : -1;
+	}
+
+	/**
+	 * Perform a GET request, and if successful, provide the response to
+	 * the consumer.
+	 * <p>
+	 * The response body is closed once the consumer returns.
+	 *
+	 * @param url  URL to request
+	 * @param onOK consumer of a successful response
+	 * @throws IOException the request failed
+	 */
+	public static void urlRequest(String url, Consumer<HttpResponse<InputStream>> onOK) throws IOException {
+		HttpResponse<InputStream> response = send(request(url).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+		try {
+			if (response.statusCode() == HttpURLConnection.HTTP_OK) {
+				onOK.accept(response);
+			}
+		} finally {
+			response.body().close();
 		}
 	}
 
+	public static boolean uploadTo(Path localFile, String url) throws IOException {
+		HttpResponse<Void> response = send(request(url).PUT(HttpRequest.BodyPublishers.ofFile(localFile)).build(),
+										   HttpResponse.BodyHandlers.discarding());
+		return response.statusCode() < 400;
+	}
+
 	public static boolean deleteRemote(String url) throws IOException {
-		URL urlConnection = new URL(url);
-		HttpURLConnection httpConn = (HttpURLConnection)urlConnection.openConnection();
-		httpConn.setRequestMethod("DELETE");
-		httpConn.connect();
-		return httpConn.getResponseCode() < 400;
+		HttpResponse<Void> response = send(request(url).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+		return response.statusCode() < 400;
 	}
 
 	public static void copyTree(Path source, Path dest) throws IOException {
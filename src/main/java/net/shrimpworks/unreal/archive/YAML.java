@@ -29,18 +29,31 @@ public class YAML {
 	private static final ObjectMapper MAPPER;
 
 	static {
-		MAPPER = new ObjectMapper(new YAMLFactory());
-		MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-		MAPPER.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+		MAPPER = configure(new ObjectMapper(new YAMLFactory()));
+	}
+
+	/**
+	 * Apply the standard feature set and custom type (de)serialisers to
+	 * a mapper, so alternative formats share YAML's representation of
+	 * dates, paths, etc.
+	 *
+	 * @param mapper mapper to configure
+	 * @return the configured mapper
+	 */
+	static ObjectMapper configure(ObjectMapper mapper) {
+		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
 
 		SimpleModule module = new SimpleModule();
 
-		MAPPER.registerModule(module.addDeserializer(LocalDateTime.class, new DateTimeDeserializer()));
-		MAPPER.registerModule(module.addSerializer(LocalDateTime.class, new DateTimeSerializer()));
-		MAPPER.registerModule(module.addDeserializer(LocalDate.class, new DateDeserializer()));
-		MAPPER.registerModule(module.addSerializer(LocalDate.class, new DateSerializer()));
-		MAPPER.registerModule(module.addDeserializer(Path.class, new PathDeserializer()));
-		MAPPER.registerModule(module.addSerializer(Path.class, new PathSerializer()));
+		mapper.registerModule(module.addDeserializer(LocalDateTime.class, new DateTimeDeserializer()));
+		mapper.registerModule(module.addSerializer(LocalDateTime.class, new DateTimeSerializer()));
+		mapper.registerModule(module.addDeserializer(LocalDate.class, new DateDeserializer()));
+		mapper.registerModule(module.addSerializer(LocalDate.class, new DateSerializer()));
+		mapper.registerModule(module.addDeserializer(Path.class, new PathDeserializer()));
+		mapper.registerModule(module.addSerializer(Path.class, new PathSerializer()));
+
+		return mapper;
 	}
 
 	public static String toString(Object object) throws IOException {
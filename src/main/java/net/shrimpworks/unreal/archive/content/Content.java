@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
@@ -205,11 +206,30 @@ public abstract class Content implements Comparable<Content> {
 		public final String name;
 		public final String url;
 
-		@ConstructorProperties({ "type", "name", "url" })
+		/**
+		 * Hash of an image's pixel content, used to find identical images
+		 * which have already been stored.
+		 */
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public final String hash;
+
+		/**
+		 * URL of a reduced size copy of an image, suitable for listings.
+		 */
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public final String thumbnail;
+
 		public Attachment(AttachmentType type, String name, String url) {
+			this(type, name, url, null, null);
+		}
+
+		@ConstructorProperties({ "type", "name", "url", "hash", "thumbnail" })
+		public Attachment(AttachmentType type, String name, String url, String hash, String thumbnail) {
 			this.type = type;
 			this.name = name;
 			this.url = url;
+			this.hash = hash;
+			this.thumbnail = thumbnail;
 		}
 
 		@Override
@@ -219,12 +239,14 @@ public abstract class Content implements Comparable<Content> {
 			Attachment that = (Attachment)o;
 			return type == that.type
 				   && Objects.equals(name, that.name)
-				   && Objects.equals(url, that.url);
+				   && Objects.equals(url, that.url)
+				   && Objects.equals(hash, that.hash)
+				   && Objects.equals(thumbnail, that.thumbnail);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(type, name, url);
+			return Objects.hash(type, name, url, hash, thumbnail);
 		}
 	}
 
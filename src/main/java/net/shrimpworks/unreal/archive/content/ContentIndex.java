@@ -0,0 +1,156 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary indexes over content held by a {@link ContentManager}, used to
+ * narrow down searches by game, type, class, name and author without having
+ * to scan all known content.
+ * <p>
+ * Indexes hold only content hashes, and are intended to produce candidate
+ * sets which are then filtered precisely by the caller. Name and author
+ * substring searches are supported via trigram indexes.
+ */
+class ContentIndex {
+
+	private static final int GRAM = 3;
+
+	private final Map<String, Set<String>> byGame = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> byType = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Set<String>> byClass = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> byName = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> nameGrams = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> authorGrams = new ConcurrentHashMap<>();
+
+	void add(Entry entry) {
+		add(byGame, entry.game, entry.hash);
+		add(byType, entry.type, entry.hash);
+		byClass.computeIfAbsent(entry.contentClass, k -> ConcurrentHashMap.newKeySet()).add(entry.hash);
+		add(byName, entry.name, entry.hash);
+		for (String gram : grams(entry.name)) add(nameGrams, gram, entry.hash);
+		for (String gram : grams(entry.author)) add(authorGrams, gram, entry.hash);
+	}
+
+	void remove(Entry entry) {
+		remove(byGame, entry.game, entry.hash);
+		remove(byType, entry.type, entry.hash);
+		Set<String> classSet = byClass.get(entry.contentClass);
+		if (classSet != null) classSet.remove(entry.hash);
+		remove(byName, entry.name, entry.hash);
+		for (String gram : grams(entry.name)) remove(nameGrams, gram, entry.hash);
+		for (String gram : grams(entry.author)) remove(authorGrams, gram, entry.hash);
+	}
+
+	/**
+	 * Find the smallest set of content hashes which may match the provided
+	 * search terms.
+	 * <p>
+	 * All terms are expected to be lower-case, and null terms are ignored.
+	 * Every hash which matches all terms will be present in the result, but
+	 * not every hash in the result is guaranteed to match.
+	 *
+	 * @param game   game name
+	 * @param type   content type
+	 * @param name   name substring
+	 * @param author author substring
+	 * @return candidate content hashes, or null if the terms could not be
+	 * used to narrow down the search
+	 */
+	Set<String> candidates(String game, String type, String name, String author) {
+		Set<String> result = null;
+		if (game != null) result = smallest(result, byGame.getOrDefault(game, Collections.emptySet()));
+		if (type != null) result = smallest(result, byType.getOrDefault(type, Collections.emptySet()));
+		if (name != null) result = smallest(result, containing(nameGrams, name));
+		if (author != null) result = smallest(result, containing(authorGrams, author));
+		return result;
+	}
+
+	/**
+	 * @param name lower-case content name
+	 * @return hashes of content with exactly the name provided
+	 */
+	Set<String> named(String name) {
+		return Collections.unmodifiableSet(byName.getOrDefault(name, Collections.emptySet()));
+	}
+
+	/**
+	 * @param type content class
+	 * @return hashes of all content of the class provided, or its subclasses
+	 */
+	Set<String> ofClass(Class<?> type) {
+		Set<String> result = new HashSet<>();
+		for (Map.Entry<Class<?>, Set<String>> e : byClass.entrySet()) {
+			if (type.isAssignableFrom(e.getKey())) result.addAll(e.getValue());
+		}
+		return result;
+	}
+
+	private static Set<String> containing(Map<String, Set<String>> grams, String query) {
+		if (query.length() < GRAM) return null;
+
+		// any content containing the query must be present in every one of the query's grams, so the smallest will do
+		Set<String> result = null;
+		for (int i = 0; i + GRAM <= query.length(); i++) {
+			Set<String> hashes = grams.get(query.substring(i, i + GRAM));
+			if (hashes == null) return Collections.emptySet();
+			result = smallest(result, hashes);
+		}
+		return result;
+	}
+
+	private static Set<String> smallest(Set<String> a, Set<String> b) {
+		if (a == null) return b;
+		if (b == null) return a;
+		return b.size() < a.size() ? b : a;
+	}
+
+	private static Set<String> grams(String value) {
+		if (value.length() < GRAM) return Collections.emptySet();
+		Set<String> grams = new HashSet<>();
+		for (int i = 0; i + GRAM <= value.length(); i++) {
+			grams.add(value.substring(i, i + GRAM));
+		}
+		return grams;
+	}
+
+	private static void add(Map<String, Set<String>> index, String key, String hash) {
+		index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(hash);
+	}
+
+	private static void remove(Map<String, Set<String>> index, String key, String hash) {
+		Set<String> hashes = index.get(key);
+		if (hashes != null) hashes.remove(hash);
+	}
+
+	/**
+	 * The indexed properties of a single piece of content, captured at the
+	 * time it was indexed, so it can later be removed even if the content
+	 * itself was modified in the meantime.
+	 */
+	static class Entry {
+
+		final String hash;
+		final Class<?> contentClass;
+		final String game;
+		final String type;
+		final String name;
+		final String author;
+
+		Entry(Content content) {
+			this.hash = content.hash;
+			this.contentClass = content.getClass();
+			this.game = lower(content.game);
+			this.type = lower(content.contentType);
+			this.name = lower(content.name);
+			this.author = lower(content.author);
+		}
+
+		private static String lower(String value) {
+			return value == null ? "" : value.toLowerCase();
+		}
+	}
+}
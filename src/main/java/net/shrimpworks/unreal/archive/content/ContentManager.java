@@ -4,13 +4,24 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -20,11 +31,17 @@ import net.shrimpworks.unreal.archive.storage.DataStore;
 
 public class ContentManager {
 
+	private static final int LOCK_STRIPES = 256;
+
 	private final Path path;
 	private final Map<String, ContentHolder> content;
 
 	private final Map<String, Collection<Content>> contentFileMap;
 	private final Map<String, Collection<Content>> variationsMap;
+	private final ContentIndex searchIndex;
+
+	// stored images by content hash, so identical images are only stored once; incomplete while being stored
+	private final Map<String, CompletableFuture<Content.Attachment>> images;
 
 	private final DataStore contentStore;
 	private final DataStore imageStore;
@@ -32,7 +49,31 @@ public class ContentManager {
 
 	private final Set<String> changes;
 
+	private final Lock[] contentLocks;
+	private final Lock[] relatedLocks;
+
 	public ContentManager(Path path, DataStore contentStore, DataStore imageStore, DataStore attachmentStore) throws IOException {
+		this(path, null, contentStore, imageStore, attachmentStore);
+	}
+
+	/**
+	 * Create a new content manager, loading all content metadata found
+	 * within the provided path.
+	 * <p>
+	 * If a snapshot path is provided, previously loaded content will be read
+	 * from the snapshot rather than from YAML for any files which have not
+	 * changed since the snapshot was written. The snapshot will be updated if
+	 * any files were added, changed or removed.
+	 *
+	 * @param path            root path of content metadata
+	 * @param snapshot        binary snapshot file, or null to always load from YAML
+	 * @param contentStore    storage for content files
+	 * @param imageStore      storage for images
+	 * @param attachmentStore storage for other attachments
+	 * @throws IOException failed to read content
+	 */
+	public ContentManager(Path path, Path snapshot, DataStore contentStore, DataStore imageStore, DataStore attachmentStore)
+			throws IOException {
 		this.path = path;
 		this.contentStore = contentStore;
 		this.imageStore = imageStore;
@@ -40,30 +81,53 @@ public class ContentManager {
 		this.content = new ConcurrentHashMap<>();
 		this.contentFileMap = new ConcurrentHashMap<>();
 		this.variationsMap = new ConcurrentHashMap<>();
+		this.searchIndex = new ContentIndex();
+		this.images = new ConcurrentHashMap<>();
 
-		this.changes = new HashSet<>();
+		this.changes = ConcurrentHashMap.newKeySet();
+
+		this.contentLocks = new Lock[LOCK_STRIPES];
+		this.relatedLocks = new Lock[LOCK_STRIPES];
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			contentLocks[i] = new ReentrantLock();
+			relatedLocks[i] = new ReentrantLock();
+		}
+
+		final ContentSnapshot previous = ContentSnapshot.load(snapshot, path);
+		final ContentSnapshot next = new ContentSnapshot(path);
+		final AtomicBoolean stale = new AtomicBoolean(false);
 
 		try (Stream<Path> files = Files.walk(path).parallel().filter(file -> Util.extension(file).equalsIgnoreCase("yml"))) {
 			files.forEach(file -> {
 				try {
-					Content c = YAML.fromFile(file, Content.class);
-					content.put(c.hash, new ContentHolder(file, c));
+					BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
 
-					// while reading this content, also index its individual files for later quick lookup
-					for (Content.ContentFile contentFile : c.files) {
-						Collection<Content> fileSet = contentFileMap.computeIfAbsent(contentFile.hash, h -> ConcurrentHashMap.newKeySet());
-						fileSet.add(c);
+					Content c = previous.get(file, attrs);
+					if (c == null) {
+						c = YAML.fromFile(file, Content.class);
+						stale.set(true);
 					}
+					next.put(file, attrs, c);
 
-					if (c.variationOf != null) {
-						Collection<Content> variations = variationsMap.computeIfAbsent(c.variationOf, h -> ConcurrentHashMap.newKeySet());
-						variations.add(c);
-					}
+					ContentHolder holder = new ContentHolder(file, c, revision(attrs));
+					content.put(c.hash, holder);
+
+					// while reading this content, also index it and its individual files for later quick lookup
+					index(holder);
 				} catch (Exception e) {
 					throw new RuntimeException(e);
 				}
 			});
 		}
+
+		// rewrite the snapshot if anything was parsed from YAML, or if files were removed since it was written
+		if (snapshot != null && (stale.get() || previous.entries.size() != next.entries.size())) {
+			try {
+				next.write(snapshot);
+			} catch (IOException e) {
+				// not fatal, we'll just need to parse more YAML next time
+			}
+		}
 	}
 
 	public int size() {
@@ -86,24 +150,67 @@ public class ContentManager {
 					  .collect(Collectors.groupingBy(v -> v.content.game, Collectors.counting()));
 	}
 
+	/**
+	 * Search for content.
+	 * <p>
+	 * Game and type must match exactly, while name and author may be
+	 * partial matches. All matches are case-insensitive, and null
+	 * parameters are not considered.
+	 *
+	 * @param game   game name
+	 * @param type   content type
+	 * @param name   partial name
+	 * @param author partial author name
+	 * @return matching content
+	 */
 	public Collection<Content> search(String game, String type, String name, String author) {
-		return content.values().parallelStream()
-					  .map(c -> c.content)
+		final String lowerGame = game == null ? null : game.toLowerCase();
+		final String lowerType = type == null ? null : type.toLowerCase();
+		final String lowerName = name == null ? null : name.toLowerCase();
+		final String lowerAuthor = author == null ? null : author.toLowerCase();
+
+		Set<String> candidates = searchIndex.candidates(lowerGame, lowerType, lowerName, lowerAuthor);
+
+		Stream<ContentHolder> holders = candidates == null
+				? content.values().parallelStream()
+				: candidates.stream().map(content::get).filter(Objects::nonNull);
+
+		// candidates are found using values captured at indexing time, so always check the live content
+		return holders.map(c -> c.content)
 					  .filter(c -> {
-						  boolean match = (game == null || c.game.equalsIgnoreCase(game));
-						  match = match && (type == null || c.contentType.equalsIgnoreCase(type));
-						  match = match && (author == null || c.author.toLowerCase().contains(author.toLowerCase()));
-						  match = match && (name == null || c.name.toLowerCase().contains(name.toLowerCase()));
+						  boolean match = (lowerGame == null || c.game.equalsIgnoreCase(lowerGame));
+						  match = match && (lowerType == null || c.contentType.equalsIgnoreCase(lowerType));
+						  match = match && (lowerAuthor == null || c.author.toLowerCase().contains(lowerAuthor));
+						  match = match && (lowerName == null || c.name.toLowerCase().contains(lowerName));
 						  return match;
 					  })
 					  .collect(Collectors.toSet());
 	}
 
 	public Collection<Content> forName(String name) {
-		return content.values().parallelStream()
-					  .filter(c -> c.content.name.equalsIgnoreCase(name))
-					  .map(c -> c.content)
-					  .collect(Collectors.toSet());
+		if (name == null) return Collections.emptySet();
+
+		return searchIndex.named(name.toLowerCase()).stream()
+						  .map(content::get)
+						  .filter(Objects::nonNull)
+						  .map(c -> c.content)
+						  .filter(c -> c.name.equalsIgnoreCase(name))
+						  .collect(Collectors.toSet());
+	}
+
+	/**
+	 * Get the current revision of content.
+	 * <p>
+	 * The revision changes whenever the content's metadata file is written,
+	 * and may be used to detect changes to content between runs.
+	 *
+	 * @param hash content hash
+	 * @return revision identifier, or null if the content is not known
+	 */
+	public String revision(String hash) {
+		ContentHolder holder = content.get(hash);
+		if (holder == null) return null;
+		return holder.revision;
 	}
 
 	public Content forHash(String hash) {
@@ -115,11 +222,11 @@ public class ContentManager {
 
 	@SuppressWarnings("unchecked")
 	public <T extends Content> Collection<T> get(Class<T> type) {
-		return content.values().parallelStream()
-					  .map(c -> c.content)
-					  .filter(c -> type.isAssignableFrom(c.getClass()))
-					  .map(c -> (T)c)
-					  .collect(Collectors.toSet());
+		return searchIndex.ofClass(type).stream()
+						  .map(content::get)
+						  .filter(Objects::nonNull)
+						  .map(c -> (T)c.content)
+						  .collect(Collectors.toSet());
 	}
 
 	/**
@@ -163,7 +270,79 @@ public class ContentManager {
 		return null;
 	}
 
+	/**
+	 * Atomically check out, modify, and check in existing content.
+	 * <p>
+	 * No other checkin of the same content can happen between the checkout
+	 * and checkin performed here.
+	 *
+	 * @param hash     hash of the content to update
+	 * @param modifier applies changes to the checked out content, and returns
+	 *                 false if the content should not be checked in after all
+	 * @return true if the content was changed
+	 * @throws IOException failed to store changes
+	 */
+	public boolean update(String hash, Predicate<Content> modifier) throws IOException {
+		Lock lock = contentLock(hash);
+		lock.lock();
+		try {
+			Content content = checkout(hash);
+			if (content == null || !modifier.test(content)) return false;
+
+			return checkin(new IndexResult<>(content, Collections.emptySet()), null);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get a lock which guards content sharing the same game, type and name
+	 * as the content provided.
+	 * <p>
+	 * Operations which search for related content and then change content
+	 * based on the result, such as variation detection, should hold this
+	 * lock for the duration of the search and subsequent checkins, so
+	 * concurrent callers cannot make conflicting decisions.
+	 * <p>
+	 * This lock must be acquired before any checkin or update is performed,
+	 * never while one is in progress.
+	 *
+	 * @param content content to find the related content lock for
+	 * @return a lock shared by related content
+	 */
+	public Lock relatedLock(Content content) {
+		String key = String.join("/", String.valueOf(content.game), String.valueOf(content.contentType), String.valueOf(content.name))
+						   .toLowerCase();
+		return relatedLocks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+	}
+
 	public boolean checkin(IndexResult<? extends Content> indexed, Submission submission) throws IOException {
+		return checkin(indexed, submission, null);
+	}
+
+	/**
+	 * Store new or updated content, along with its files and attachments.
+	 *
+	 * @param indexed    content and new attachments to store
+	 * @param submission the submission the content was indexed from, or null
+	 * @param log        if not null, time spent in each stage of storage is
+	 *                   recorded in this log
+	 * @return true if the content was stored, false if it was unchanged
+	 * @throws IOException failed to store content or attachments
+	 */
+	public boolean checkin(IndexResult<? extends Content> indexed, Submission submission, IndexLog log) throws IOException {
+		final long started = System.nanoTime();
+		Lock lock = contentLock(indexed.content.hash);
+		lock.lock();
+		try {
+			return store(indexed, submission, log, time(log, "checkin.lock", started));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean store(IndexResult<? extends Content> indexed, Submission submission, IndexLog log, long time)
+			throws IOException {
 		ContentHolder current = this.content.get(indexed.content.hash);
 
 		if (current == null || (!indexed.content.equals(current.content) || !indexed.files.isEmpty())) {
@@ -171,22 +350,37 @@ public class ContentManager {
 			Path next = indexed.content.contentPath(path);
 			Files.createDirectories(next);
 
+			// the content file and attachments are uploaded concurrently, and added to the content once all have completed
+			CompletableFuture<String> mainUpload = null;
+			if (submission != null && indexed.content.downloads.stream().noneMatch(d -> d.main)) {
+				String uploadPath = path.relativize(next.resolve(submission.filePath.getFileName())).toString();
+				mainUpload = contentStore.storeAsync(submission.filePath, uploadPath);
+			}
+
+			List<CompletableFuture<Content.Attachment>> uploads = new ArrayList<>();
 			for (IndexResult.NewAttachment file : indexed.files) {
-				// use same path structure as per contentPath
+				uploads.add(storeAttachment(file, next, log));
+			}
+
+			IOException failed = null;
+			for (CompletableFuture<Content.Attachment> upload : uploads) {
 				try {
-					String uploadPath = path.relativize(next.resolve(file.name)).toString();
-					if (file.type == Content.AttachmentType.IMAGE) {
-						imageStore.store(file.path, uploadPath,
-										 s -> indexed.content.attachments.add(new Content.Attachment(file.type, file.name, s)));
-					} else {
-						attachmentStore.store(file.path, uploadPath,
-											  s -> indexed.content.attachments.add(new Content.Attachment(file.type, file.name, s)));
-					}
-				} finally {
-					// cleanup file once uploaded
-					Files.deleteIfExists(file.path);
+					Content.Attachment stored = upload.join();
+					if (stored != null) indexed.content.attachments.add(stored);
+				} catch (CompletionException e) {
+					failed = failure(failed, e, "Failed to store attachment");
 				}
 			}
+			if (mainUpload != null) {
+				try {
+					String url = mainUpload.join();
+					if (url != null) indexed.content.downloads.add(new Content.Download(url, true, false, Content.DownloadState.OK));
+				} catch (CompletionException e) {
+					failed = failure(failed, e, "Failed to store content");
+				}
+			}
+			time = time(log, "checkin.upload", time);
+			if (failed != null) throw failed;
 
 			// TODO KW 20181015 - don't do this - any updates not involving a re-index will wipe attachments out
 			// delete removed attachments from remote
@@ -206,38 +400,242 @@ public class ContentManager {
 //				}
 //			}
 
-			if (submission != null && indexed.content.downloads.stream().noneMatch(d -> d.main)) {
-				String uploadPath = path.relativize(next.resolve(submission.filePath.getFileName())).toString();
-				contentStore.store(submission.filePath, uploadPath,
-								   s -> indexed.content.downloads.add(new Content.Download(s, true, false, Content.DownloadState.OK))
-				);
-			}
-
-			Path newYml = next.resolve(String.format("%s_[%s].yml", indexed.content.name, indexed.content.hash.substring(0, 8)));
-			Files.write(Util.safeFileName(newYml), YAML.toString(indexed.content).getBytes(StandardCharsets.UTF_8),
-						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			Path newYml = Util.safeFileName(
+					next.resolve(String.format("%s_[%s].yml", indexed.content.name, indexed.content.hash.substring(0, 8)))
+			);
+			writeYaml(newYml, indexed.content);
+			time = time(log, "checkin.yaml", time);
 
 			if (current != null && !current.path.equals(newYml)) {
 				// remove old yml file if new file changed
 				Files.deleteIfExists(current.path);
 			}
 
-			this.content.put(indexed.content.hash, new ContentHolder(newYml, indexed.content));
+			ContentHolder holder = new ContentHolder(newYml, indexed.content,
+													 revision(Files.readAttributes(newYml, BasicFileAttributes.class)));
+			if (current != null) unindex(current);
+			this.content.put(indexed.content.hash, holder);
+			index(holder);
+
 			this.changes.add(indexed.content.hash);
+			time(log, "checkin.index", time);
 
 			return true;
 		}
 		return false;
 	}
 
+	private static long time(IndexLog log, String stage, long started) {
+		return log == null ? System.nanoTime() : log.time(stage, started);
+	}
+
+	/**
+	 * Write content to a YAML file via a temporary file in the same directory,
+	 * which is then moved over the destination file, so a partially written
+	 * file is never left in place of a good one.
+	 */
+	private void writeYaml(Path yml, Content content) throws IOException {
+		Path tmp = Files.createTempFile(yml.getParent(), ".checkin-", ".tmp");
+		try {
+			Files.write(tmp, YAML.toString(content).getBytes(StandardCharsets.UTF_8),
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			Files.move(tmp, yml, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Store a new attachment in the background, and clean up its local
+	 * files once stored.
+	 * <p>
+	 * Identical images are only stored once. The first attachment with a
+	 * given image hash claims it before storing it, and any others with the
+	 * same hash wait for that to complete, and then reference the stored
+	 * image. If storing the image fails, the claim is given up, and the next
+	 * attachment waiting for it will try to store it instead.
+	 *
+	 * @param file        attachment to store
+	 * @param contentPath path of the content the attachment belongs to
+	 * @param log         log for non-fatal storage failures, may be null
+	 * @return a future which completes with the stored attachment
+	 */
+	private CompletableFuture<Content.Attachment> storeAttachment(IndexResult.NewAttachment file, Path contentPath, IndexLog log) {
+		if (file.hash == null) return upload(file, contentPath, log);
+
+		final CompletableFuture<Content.Attachment> claim = new CompletableFuture<>();
+		final CompletableFuture<Content.Attachment> existing = images.computeIfAbsent(file.hash, h -> claim);
+		if (existing != claim) {
+			return existing.handle((stored, e) -> e == null
+					? discard(file, log).thenApply(
+							v -> new Content.Attachment(file.type, file.name, stored.url, file.hash, stored.thumbnail))
+					: storeAttachment(file, contentPath, log)
+			).thenCompose(Function.identity());
+		}
+
+		return upload(file, contentPath, log).whenComplete((stored, e) -> {
+			if (e == null) {
+				claim.complete(stored);
+			} else {
+				// give up the claim before anyone waiting for it is told, so one of them may store it instead
+				images.remove(file.hash, claim);
+				claim.completeExceptionally(e);
+			}
+		});
+	}
+
+	private CompletableFuture<Content.Attachment> upload(IndexResult.NewAttachment file, Path contentPath, IndexLog log) {
+		// use same path structure as per contentPath
+		String uploadPath = path.relativize(contentPath.resolve(file.name)).toString();
+
+		if (file.type == Content.AttachmentType.IMAGE) {
+			// the thumbnail is only stored once the image has been, so a failed image does not leave an orphaned thumbnail
+			return file.written()
+					   .thenCompose(written -> imageStore.storeAsync(written, uploadPath))
+					   .whenComplete((url, e) -> cleanup(file.path, log))
+					   .handle((url, e) -> e == null
+							   ? storeThumbnail(file, contentPath, log).thenApply(
+									   thumb -> new Content.Attachment(file.type, file.name, url, file.hash, thumb))
+							   : discardThumbnail(file, log).<Content.Attachment>thenCompose(v -> CompletableFuture.failedFuture(e))
+					   ).thenCompose(Function.identity());
+		} else {
+			return file.written()
+					   .thenCompose(written -> attachmentStore.storeAsync(written, uploadPath))
+					   .whenComplete((url, e) -> cleanup(file.path, log))
+					   .thenApply(url -> new Content.Attachment(file.type, file.name, url));
+		}
+	}
+
+	/**
+	 * Store an image attachment's thumbnail in the background, if it has one.
+	 * <p>
+	 * Thumbnails are optional, so failure to create or store one does not
+	 * prevent the image itself being stored.
+	 *
+	 * @return a future which completes with the stored thumbnail's URL, or
+	 * null
+	 */
+	private CompletableFuture<String> storeThumbnail(IndexResult.NewAttachment file, Path contentPath, IndexLog log) {
+		if (file.thumbnail == null) return CompletableFuture.completedFuture(null);
+
+		String uploadPath = path.relativize(contentPath.resolve(file.thumbnail.name)).toString();
+		return file.thumbnail.written()
+							 .thenCompose(written -> imageStore.storeAsync(written, uploadPath))
+							 .whenComplete((url, e) -> cleanup(file.thumbnail.path, log))
+							 .exceptionally(e -> {
+								 if (log != null) {
+									 log.log(IndexLog.EntryType.CONTINUE, "Failed to store thumbnail " + file.thumbnail.name,
+											 e instanceof CompletionException ? e.getCause() : e);
+								 }
+								 return null;
+							 });
+	}
+
+	/**
+	 * Remove an attachment's local files which will not be stored, once they
+	 * have been written.
+	 * <p>
+	 * Files may still be being written in the background, so they can only
+	 * be removed once complete, whether or not they were written successfully.
+	 *
+	 * @param file attachment to discard
+	 * @param log  log for failures to remove files, may be null
+	 * @return a future which completes once the files have been removed
+	 */
+	static CompletableFuture<Void> discard(IndexResult.NewAttachment file, IndexLog log) {
+		CompletableFuture<Void> discarded = file.written().handle((written, e) -> {
+			cleanup(file.path, log);
+			return null;
+		});
+		if (file.thumbnail == null) return discarded;
+
+		return discarded.thenCombine(discard(file.thumbnail, log), (a, b) -> null);
+	}
+
+	private static CompletableFuture<Void> discardThumbnail(IndexResult.NewAttachment file, IndexLog log) {
+		if (file.thumbnail == null) return CompletableFuture.completedFuture(null);
+		return discard(file.thumbnail, log);
+	}
+
+	private static void cleanup(Path file, IndexLog log) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			if (log != null) log.log(IndexLog.EntryType.INFO, "Failed to remove temporary file " + file, e);
+		}
+	}
+
+	private IOException failure(IOException failed, CompletionException e, String message) {
+		IOException cause = e.getCause() instanceof IOException
+				? (IOException)e.getCause()
+				: new IOException(message, e.getCause());
+		if (failed == null) return cause;
+		failed.addSuppressed(cause);
+		return failed;
+	}
+
+	private Lock contentLock(String hash) {
+		return contentLocks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+	}
+
+	/**
+	 * Add content to the lookup maps and indexes used to search for content,
+	 * and to find content by file and variation.
+	 */
+	private void index(ContentHolder holder) {
+		searchIndex.add(holder.indexed);
+
+		for (Content.ContentFile contentFile : holder.content.files) {
+			Collection<Content> fileSet = contentFileMap.computeIfAbsent(contentFile.hash, h -> ConcurrentHashMap.newKeySet());
+			fileSet.add(holder.content);
+		}
+
+		if (holder.content.variationOf != null) {
+			Collection<Content> variations = variationsMap.computeIfAbsent(holder.content.variationOf, h -> ConcurrentHashMap.newKeySet());
+			variations.add(holder.content);
+		}
+
+		for (Content.Attachment attachment : holder.content.attachments) {
+			if (attachment.hash != null) images.putIfAbsent(attachment.hash, CompletableFuture.completedFuture(attachment));
+		}
+	}
+
+	/**
+	 * Remove content from the lookup maps and indexes used to search for
+	 * content, and to find content by file and variation.
+	 */
+	private void unindex(ContentHolder holder) {
+		searchIndex.remove(holder.indexed);
+
+		final String hash = holder.content.hash;
+
+		for (Content.ContentFile contentFile : holder.content.files) {
+			Collection<Content> fileSet = contentFileMap.get(contentFile.hash);
+			if (fileSet != null) fileSet.removeIf(f -> f.hash.equals(hash));
+		}
+
+		if (holder.content.variationOf != null) {
+			Collection<Content> variations = variationsMap.get(holder.content.variationOf);
+			if (variations != null) variations.removeIf(v -> v.hash.equals(hash));
+		}
+	}
+
+	private static String revision(BasicFileAttributes attrs) {
+		return String.join("-", attrs.lastModifiedTime().toString(), Long.toString(attrs.size()));
+	}
+
 	private static class ContentHolder {
 
 		private final Path path;
 		private final Content content;
+		private final ContentIndex.Entry indexed;
+		private final String revision;
 
-		public ContentHolder(Path path, Content content) {
+		public ContentHolder(Path path, Content content, String revision) {
 			this.path = path;
 			this.content = content;
+			this.indexed = new ContentIndex.Entry(content);
+			this.revision = revision;
 		}
 	}
 }
@@ -0,0 +1,102 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.shrimpworks.unreal.archive.Binary;
+
+/**
+ * A binary snapshot of previously loaded content metadata.
+ * <p>
+ * Allows a {@link ContentManager} to skip parsing YAML files which have not
+ * changed since the snapshot was written. Entries are keyed by the YAML file's
+ * path, and are only considered valid while the file's size and last modified
+ * time remain the same as they were when the entry was recorded.
+ */
+class ContentSnapshot {
+
+	private static final int VERSION = 1;
+
+	public final int version;
+	public final String root;
+	public final Map<String, Entry> entries;
+
+	@ConstructorProperties({ "version", "root", "entries" })
+	public ContentSnapshot(int version, String root, Map<String, Entry> entries) {
+		this.version = version;
+		this.root = root;
+		this.entries = new ConcurrentHashMap<>(entries);
+	}
+
+	ContentSnapshot(Path root) {
+		this(VERSION, root.toAbsolutePath().toString(), new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * Load a snapshot from disk.
+	 * <p>
+	 * If the snapshot does not exist, cannot be read, or was created for a
+	 * different content root or format version, an empty snapshot is returned.
+	 *
+	 * @param snapshot snapshot file
+	 * @param root     content root the snapshot should describe
+	 * @return a snapshot, possibly empty
+	 */
+	static ContentSnapshot load(Path snapshot, Path root) {
+		if (snapshot != null && Files.isRegularFile(snapshot)) {
+			try {
+				ContentSnapshot loaded = Binary.fromFile(snapshot, ContentSnapshot.class);
+				if (loaded.version == VERSION && root.toAbsolutePath().toString().equals(loaded.root)) return loaded;
+			} catch (IOException e) {
+				// unreadable or incompatible snapshots are simply discarded and rebuilt
+			}
+		}
+		return new ContentSnapshot(root);
+	}
+
+	void write(Path snapshot) throws IOException {
+		Files.createDirectories(snapshot.toAbsolutePath().getParent());
+		Binary.toFile(this, snapshot);
+	}
+
+	/**
+	 * Get the content previously loaded from a file, if the file has not
+	 * changed since.
+	 *
+	 * @param file  YAML file path
+	 * @param attrs current attributes of the file
+	 * @return cached content, or null if unknown or stale
+	 */
+	Content get(Path file, BasicFileAttributes attrs) {
+		Entry entry = entries.get(file.toString());
+		if (entry != null && entry.matches(attrs)) return entry.content;
+		return null;
+	}
+
+	void put(Path file, BasicFileAttributes attrs, Content content) {
+		entries.put(file.toString(), new Entry(attrs.lastModifiedTime().toMillis(), attrs.size(), content));
+	}
+
+	public static class Entry {
+
+		public final long modified;
+		public final long size;
+		public final Content content;
+
+		@ConstructorProperties({ "modified", "size", "content" })
+		public Entry(long modified, long size, Content content) {
+			this.modified = modified;
+			this.size = size;
+			this.content = content;
+		}
+
+		boolean matches(BasicFileAttributes attrs) {
+			return modified == attrs.lastModifiedTime().toMillis() && size == attrs.size();
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.shrimpworks.unreal.archive.Binary;
+import net.shrimpworks.unreal.archive.Util;
+
+/**
+ * A persistent cache of file hashes.
+ * <p>
+ * Hashes are keyed by a file's absolute path, and are only considered
+ * valid while the file's size and last modified time remain the same as
+ * they were when the hash was computed. This allows repeated scans or
+ * index runs over large, mostly unchanged, sets of files to skip reading
+ * every file in full just to find out it's already known.
+ */
+public class HashCache {
+
+	private static final int VERSION = 1;
+
+	private final Path path;
+	private final boolean verify;
+	private final Map<String, Entry> entries;
+
+	private volatile boolean dirty;
+
+	private HashCache(Path path, boolean verify, Map<String, Entry> entries) {
+		this.path = path;
+		this.verify = verify;
+		this.entries = new ConcurrentHashMap<>(entries);
+		this.dirty = false;
+	}
+
+	/**
+	 * Create a hash cache which only lives in memory.
+	 *
+	 * @return a new empty cache
+	 */
+	public static HashCache memory() {
+		return new HashCache(null, false, Map.of());
+	}
+
+	/**
+	 * Load a hash cache from disk.
+	 * <p>
+	 * If the cache file does not exist, or cannot be read, an empty cache is
+	 * returned, which will be written to the same location when saved.
+	 *
+	 * @param path   cache file location, or null to not persist hashes
+	 * @param verify if true, cached hashes are not trusted, and all files
+	 *               will be hashed again, updating the cache
+	 * @return a hash cache
+	 */
+	public static HashCache load(Path path, boolean verify) {
+		if (path != null && Files.isRegularFile(path)) {
+			try {
+				Snapshot snapshot = Binary.fromFile(path, Snapshot.class);
+				if (snapshot.version == VERSION && snapshot.entries != null) return new HashCache(path, verify, snapshot.entries);
+			} catch (IOException e) {
+				// unreadable or incompatible caches are simply discarded and rebuilt
+			}
+		}
+		return new HashCache(path, verify, Map.of());
+	}
+
+	/**
+	 * Get the SHA-1 hash of a file, computing and remembering it if the file
+	 * is not known, or has changed since it was last hashed.
+	 *
+	 * @param file file to hash
+	 * @return file hash
+	 * @throws IOException failed to read the file
+	 */
+	public String hash(Path file) throws IOException {
+		final String key = file.toAbsolutePath().toString();
+		final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+
+		Entry entry = entries.get(key);
+		if (!verify && entry != null && entry.matches(attrs)) return entry.hash;
+
+		final String hash = Util.hash(file);
+		entries.put(key, new Entry(attrs.lastModifiedTime().toMillis(), attrs.size(), hash));
+		dirty = true;
+
+		return hash;
+	}
+
+	/**
+	 * Write the cache to disk, if it has changed since it was loaded.
+	 * <p>
+	 * Entries for files which no longer exist are dropped, so the cache does
+	 * not keep growing as files are moved or removed.
+	 *
+	 * @throws IOException failed to write the cache
+	 */
+	public void save() throws IOException {
+		if (path == null) return;
+
+		if (entries.keySet().removeIf(f -> !Files.exists(Paths.get(f)))) dirty = true;
+
+		if (!dirty) return;
+
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		Binary.toFile(new Snapshot(VERSION, entries), path);
+		dirty = false;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public static class Snapshot {
+
+		public final int version;
+		public final Map<String, Entry> entries;
+
+		@ConstructorProperties({ "version", "entries" })
+		public Snapshot(int version, Map<String, Entry> entries) {
+			this.version = version;
+			this.entries = entries;
+		}
+	}
+
+	public static class Entry {
+
+		public final long modified;
+		public final long size;
+		public final String hash;
+
+		@ConstructorProperties({ "modified", "size", "hash" })
+		public Entry(long modified, long size, String hash) {
+			this.modified = modified;
+			this.size = size;
+			this.hash = hash;
+		}
+
+		boolean matches(BasicFileAttributes attrs) {
+			return modified == attrs.lastModifiedTime().toMillis() && size == attrs.size();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import net.shrimpworks.unreal.archive.CLI;
+
+/**
+ * Encodes and writes images, such as screenshots, on a bounded pool of
+ * background threads.
+ * <p>
+ * Images are written to a temporary directory owned by the encoder, and the
+ * caller is given a {@link CompletableFuture} which completes once the file
+ * has been written. If the pool's queue is full, the calling thread will
+ * encode the image itself, which limits the number of decoded images waiting
+ * in memory.
+ */
+public class ImageEncoder {
+
+	public enum Format {
+		PNG("png", "png"),
+		JPEG("jpg", "jpeg"),
+		WEBP("webp", "webp"),
+		;
+
+		public final String ext;
+		private final String imageIoName;
+
+		Format(String ext, String imageIoName) {
+			this.ext = ext;
+			this.imageIoName = imageIoName;
+		}
+	}
+
+	private static final int QUEUE_PER_THREAD = 4;
+
+	private final Format format;
+	private final int compression;
+	private final int quality;
+	private final ThreadPoolExecutor executor;
+
+	private volatile Path tempDir;
+
+	/**
+	 * Create a new image encoder.
+	 *
+	 * @param format      output image format, if the format is not supported
+	 *                    by the available image writers, PNG will be used
+	 * @param compression PNG compression level, from 0 (none) to 9 (best), or
+	 *                    -1 to use the default
+	 * @param quality     JPEG and WebP quality, from 0 to 100
+	 * @param threads     number of threads used for encoding
+	 */
+	public ImageEncoder(Format format, int compression, int quality, int threads) {
+		if (compression < -1 || compression > 9) throw new IllegalArgumentException("Compression must be between 0 and 9, or -1");
+		if (quality < 0 || quality > 100) throw new IllegalArgumentException("Quality must be between 0 and 100");
+
+		this.format = ImageIO.getImageWritersByFormatName(format.imageIoName).hasNext() ? format : Format.PNG;
+		this.compression = compression;
+		this.quality = quality;
+
+		final int poolSize = Math.max(1, threads);
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(
+				poolSize, poolSize, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(poolSize * QUEUE_PER_THREAD),
+				r -> {
+					Thread t = new Thread(r, "image-encoder-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				},
+				new ThreadPoolExecutor.CallerRunsPolicy()
+		);
+		this.executor.allowCoreThreadTimeOut(true);
+
+		if (this.format != format) {
+			System.err.printf("No image writer available for %s, images will be written as %s%n", format, this.format);
+		}
+	}
+
+	/**
+	 * Create an image encoder with default settings.
+	 *
+	 * @return a new image encoder
+	 */
+	public static ImageEncoder defaults() {
+		return new ImageEncoder(Format.PNG, -1, 90, Runtime.getRuntime().availableProcessors() / 2);
+	}
+
+	/**
+	 * Create an image encoder configured by command line options.
+	 *
+	 * @param cli command line options
+	 * @return a new image encoder
+	 */
+	public static ImageEncoder fromCli(CLI cli) {
+		return new ImageEncoder(
+				Format.valueOf(cli.option("image-format", Format.PNG.name()).toUpperCase(Locale.ROOT)),
+				Integer.parseInt(cli.option("image-compression", "-1")),
+				Integer.parseInt(cli.option("image-quality", "90")),
+				Integer.parseInt(cli.option("image-threads", Integer.toString(Runtime.getRuntime().availableProcessors() / 2)))
+		);
+	}
+
+	/**
+	 * Replace the extension of a file name with the extension of the format
+	 * images are written in.
+	 *
+	 * @param name file name
+	 * @return file name with the output format's extension
+	 */
+	public String fileName(String name) {
+		int dot = name.lastIndexOf('.');
+		return (dot > 0 ? name.substring(0, dot) : name) + "." + format.ext;
+	}
+
+	/**
+	 * Get the location within the encoder's temporary directory an image
+	 * with the given file name should be written to.
+	 *
+	 * @param name file name, which should have the extension provided by
+	 *             {@link #fileName(String)}
+	 * @return output path
+	 * @throws IOException failed to create the temporary directory
+	 */
+	public Path output(String name) throws IOException {
+		return tempDir().resolve(name);
+	}
+
+	/**
+	 * Encode and write an image in the background.
+	 *
+	 * @param image image to write
+	 * @param out   file to write the image to
+	 * @return a future which completes with the written file
+	 */
+	public CompletableFuture<Path> write(BufferedImage image, Path out) {
+		final CompletableFuture<Path> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				result.complete(encode(image, out));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Scale an image down to the given width, and encode and write it in
+	 * the background.
+	 *
+	 * @param image image to write
+	 * @param width width of the written image, images narrower than this
+	 *              are written as-is
+	 * @param out   file to write the image to
+	 * @return a future which completes with the written file
+	 */
+	public CompletableFuture<Path> thumbnail(BufferedImage image, int width, Path out) {
+		final CompletableFuture<Path> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				result.complete(encode(scale(image, width), out));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Produce a hash of an image's dimensions and pixel content, which is
+	 * the same for identical images regardless of their source format.
+	 *
+	 * @param image image to hash
+	 * @return image hash
+	 */
+	public static String hash(BufferedImage image) {
+		try {
+			final MessageDigest md = MessageDigest.getInstance("SHA-1");
+			final int width = image.getWidth();
+			final int height = image.getHeight();
+			final ByteBuffer buffer = ByteBuffer.allocate(Math.max(8, width * 4));
+
+			md.update(buffer.putInt(width).putInt(height).flip());
+			for (int y = 0; y < height; y++) {
+				buffer.clear().limit(width * 4);
+				buffer.asIntBuffer().put(image.getRGB(0, y, width, 1, null, 0, width));
+				md.update(buffer);
+			}
+
+			return String.format("%040x", new BigInteger(1, md.digest()));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private BufferedImage scale(BufferedImage image, int width) {
+		if (image.getWidth() <= width) return image;
+
+		final int height = Math.max(1, Math.round(image.getHeight() * (width / (float)image.getWidth())));
+		final BufferedImage scaled = new BufferedImage(width, height, image.getColorModel().hasAlpha()
+				? BufferedImage.TYPE_INT_ARGB
+				: BufferedImage.TYPE_INT_RGB);
+		final Graphics2D g = scaled.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(image, 0, 0, width, height, null);
+		} finally {
+			g.dispose();
+		}
+		return scaled;
+	}
+
+	private Path encode(BufferedImage image, Path out) throws IOException {
+		final Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.imageIoName);
+		if (!writers.hasNext()) throw new IOException("No image writer available for " + format);
+
+		final ImageWriter writer = writers.next();
+		Files.deleteIfExists(out);
+		try (ImageOutputStream os = ImageIO.createImageOutputStream(out.toFile())) {
+			writer.setOutput(os);
+
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if (param.canWriteCompressed() && (format != Format.PNG || compression >= 0)) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				if (param.getCompressionType() == null) param.setCompressionType(param.getCompressionTypes()[0]);
+				param.setCompressionQuality(format == Format.PNG ? 1f - (compression / 9f) : quality / 100f);
+			}
+
+			writer.write(null, new IIOImage(format == Format.PNG ? image : opaque(image), null, null), param);
+		} finally {
+			writer.dispose();
+		}
+
+		return out;
+	}
+
+	/**
+	 * Lossy formats do not support transparency, so draw images onto a
+	 * solid background.
+	 */
+	private BufferedImage opaque(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_RGB) return image;
+
+		BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = rgb.createGraphics();
+		try {
+			g.drawImage(image, 0, 0, Color.BLACK, null);
+		} finally {
+			g.dispose();
+		}
+		return rgb;
+	}
+
+	private Path tempDir() throws IOException {
+		if (tempDir == null) {
+			synchronized (this) {
+				if (tempDir == null) {
+					tempDir = Files.createTempDirectory("archive-images-");
+					tempDir.toFile().deleteOnExit();
+				}
+			}
+		}
+		return tempDir;
+	}
+}
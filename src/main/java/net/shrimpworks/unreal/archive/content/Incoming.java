@@ -2,6 +2,7 @@ package net.shrimpworks.unreal.archive.content;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileVisitResult;
@@ -16,15 +17,23 @@ import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import net.shrimpworks.unreal.archive.ArchiveUtil;
 import net.shrimpworks.unreal.archive.Util;
+import net.shrimpworks.unreal.packages.IntFile;
+import net.shrimpworks.unreal.packages.Package;
+import net.shrimpworks.unreal.packages.PackageReader;
 import net.shrimpworks.unreal.packages.Umod;
 
 public class Incoming implements Closeable {
@@ -60,6 +69,14 @@ public class Incoming implements Closeable {
 
 		public static final FileType[] ALL = FileType.values();
 
+		private static final Map<String, FileType> BY_EXT = new HashMap<>();
+
+		static {
+			for (FileType type : values()) {
+				for (String e : type.ext) BY_EXT.put(e, type);
+			}
+		}
+
 		public final boolean important;
 		public final Collection<String> ext;
 
@@ -77,10 +94,18 @@ public class Incoming implements Closeable {
 		}
 
 		public static boolean important(String path) {
-			for (FileType type : values()) {
-				if (type.important && type.ext.contains(Util.extension(path).toLowerCase())) return true;
-			}
-			return false;
+			FileType type = forExtension(Util.extension(path).toLowerCase());
+			return type != null && type.important;
+		}
+
+		/**
+		 * Find the file type for a file extension.
+		 *
+		 * @param ext lower-case file extension, without a leading "."
+		 * @return the file type, or null if the extension is not a known type
+		 */
+		public static FileType forExtension(String ext) {
+			return BY_EXT.get(ext);
 		}
 	}
 
@@ -89,24 +114,97 @@ public class Incoming implements Closeable {
 	public final int fileSize;
 	public final IndexLog log;
 
+	private final boolean lazy;
 	private final Set<Umod> umods;
 
+	// hashes of files, either recorded while the file was written, or when first requested
+	private final Map<String, String> hashes;
+
+	// packages which have been read, shared by all classifiers and index handlers
+	private final Map<String, Package> packages;
+
+	// parsed .int and similar files, shared by all classifiers and index handlers
+	private final Map<String, IntFile> intFiles;
+
 	public Path contentRoot;
 	public Map<String, Object> files;
 
+	// files grouped by type, built once the incoming files are known
+	private Map<FileType, Set<IncomingFile>> inventory;
+
 	private Path repackPath;
+	private ZipFile archive;
+
+	// where a lazily processed archive was fully extracted to, if any of its entries could not be read in-process
+	private Path extractedRoot;
 
 	public Incoming(Submission submission, IndexLog log) throws IOException, UnsupportedOperationException {
+		this(submission, log, false);
+	}
+
+	/**
+	 * Create a new incoming file for indexing.
+	 * <p>
+	 * When lazy, zip files are not extracted up-front. Instead, their entries
+	 * are listed from the archive's central directory, and individual files
+	 * are only written to disk when they are opened via
+	 * {@link IncomingFile#asChannel()}. Archives containing other archives,
+	 * and other archive formats, are always fully extracted.
+	 *
+	 * @param submission the submission to index
+	 * @param log        log for indexing messages
+	 * @param lazy       only extract files from zip archives as they are needed
+	 * @throws IOException failed to read the submitted file
+	 */
+	public Incoming(Submission submission, IndexLog log, boolean lazy) throws IOException, UnsupportedOperationException {
+		this(submission, Util.hash(submission.filePath), log, lazy);
+	}
+
+	/**
+	 * Create a new incoming file for indexing, for which the hash is already
+	 * known, for example via a {@link HashCache}.
+	 *
+	 * @param submission the submission to index
+	 * @param hash       hash of the submitted file
+	 * @param log        log for indexing messages
+	 * @param lazy       only extract files from zip archives as they are needed
+	 * @throws IOException failed to read the submitted file
+	 * @see #Incoming(Submission, IndexLog, boolean)
+	 */
+	public Incoming(Submission submission, String hash, IndexLog log, boolean lazy) throws IOException, UnsupportedOperationException {
 		this.submission = submission;
-		this.hash = Util.hash(submission.filePath);
+		this.hash = hash;
 		this.fileSize = (int)Files.size(submission.filePath);
 		this.umods = new HashSet<>();
+		this.hashes = new ConcurrentHashMap<>();
+		this.packages = new HashMap<>();
+		this.intFiles = new ConcurrentHashMap<>();
 		this.log = log;
+		this.lazy = lazy;
 	}
 
 	public Incoming prepare() throws IOException {
+		long time = System.nanoTime();
+		if (lazy && Util.extension(submission.filePath).equalsIgnoreCase("zip")) {
+			this.contentRoot = Files.createTempDirectory("archive-incoming-");
+			this.files = listArchive(submission.filePath, contentRoot);
+			time = log.time("prepare.list", time);
+			if (this.files != null) {
+				this.inventory = inventory(files);
+				log.time("prepare.inventory", time);
+				return this;
+			}
+
+			// could not be processed lazily, fall back to full extraction
+			ArchiveUtil.cleanPath(contentRoot);
+		}
+
 		this.contentRoot = getRoot(submission.filePath);
+		time = log.time("prepare.extract", time);
 		this.files = listFiles(submission.filePath, contentRoot);
+		time = log.time("prepare.list", time);
+		this.inventory = inventory(files);
+		log.time("prepare.inventory", time);
 		return this;
 	}
 
@@ -122,13 +220,37 @@ public class Incoming implements Closeable {
 
 		umods.clear();
 
+		synchronized (packages) {
+			for (Package p : packages.values()) {
+				try {
+					p.close();
+				} catch (IOException e) {
+					log.log(IndexLog.EntryType.INFO, "Failed cleaning up package " + p, e);
+				}
+			}
+			packages.clear();
+		}
+
+		intFiles.clear();
+
+		if (archive != null) {
+			archive.close();
+			archive = null;
+		}
+
 		if (files != null) files.clear();
+		inventory = null;
+		hashes.clear();
 
 		// clean up contentRoot
 		if (contentRoot != null) {
 			ArchiveUtil.cleanPath(contentRoot);
 		}
 
+		if (extractedRoot != null && Files.exists(extractedRoot)) {
+			ArchiveUtil.cleanPath(extractedRoot);
+		}
+
 		if (repackPath != null) {
 			ArchiveUtil.cleanPath(repackPath);
 		}
@@ -148,17 +270,42 @@ public class Incoming implements Closeable {
 		return null;
 	}
 
+	/**
+	 * Get all incoming files of the given types.
+	 * <p>
+	 * The returned sets are shared, so may be freely used by any number of
+	 * classifiers and index handlers without the file list being inspected
+	 * again.
+	 *
+	 * @param type file types to find
+	 * @return unmodifiable set of files matching any of the provided types
+	 */
 	public Set<IncomingFile> files(FileType... type) {
+		if (inventory == null) inventory = inventory(files);
+
+		if (type.length == 1) return inventory.get(type[0]);
+
 		Set<IncomingFile> res = new HashSet<>();
-		for (FileType t : type) {
-			res.addAll(files.keySet().stream()
-							.filter(t::matches)
-							.map(IncomingFile::new)
-							.collect(Collectors.toSet()));
-		}
+		for (FileType t : type) res.addAll(inventory.get(t));
 		return Collections.unmodifiableSet(res);
 	}
 
+	private Map<FileType, Set<IncomingFile>> inventory(Map<String, Object> files) {
+		Map<FileType, Set<IncomingFile>> types = new EnumMap<>(FileType.class);
+		for (FileType t : FileType.values()) types.put(t, new HashSet<>());
+
+		if (files != null) {
+			for (String file : files.keySet()) {
+				String ext = Util.extension(file).toLowerCase();
+				FileType type = FileType.forExtension(ext);
+				if (type != null) types.get(type).add(new IncomingFile(file, ext));
+			}
+		}
+
+		types.replaceAll((t, set) -> Collections.unmodifiableSet(set));
+		return Collections.unmodifiableMap(types);
+	}
+
 	private Map<String, Object> listFiles(Path filePath, Path contentRoot) throws IOException {
 		Map<String, Object> files = new HashMap<>();
 		if (contentRoot != null && Files.exists(contentRoot)) {
@@ -178,6 +325,50 @@ public class Incoming implements Closeable {
 		return files;
 	}
 
+	/**
+	 * List the contents of a zip file without extracting it.
+	 *
+	 * @return files within the archive, or null if the archive cannot be
+	 * handled lazily, and should be extracted
+	 */
+	private Map<String, Object> listArchive(Path filePath, Path contentRoot) throws IOException {
+		final Map<String, Object> files = new HashMap<>();
+		final Path root = contentRoot.toAbsolutePath().normalize();
+
+		try {
+			archive = new ZipFile(filePath.toFile());
+
+			final Enumeration<? extends ZipEntry> entries = archive.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) continue;
+
+				// nested archives can only be found by extracting them, so don't bother being lazy
+				if (ArchiveUtil.isArchive(entry.getName())) return closeArchive();
+
+				final Path target = root.resolve(entry.getName().replaceAll("\\\\", "/")).normalize();
+				if (!target.startsWith(root)) return closeArchive();
+
+				final ArchiveEntry archiveEntry = new ArchiveEntry(entry, target);
+				if (FileType.UMOD.matches(entry.getName())) files.putAll(umodFiles(archiveEntry.materialise()));
+				files.put(target.toString(), archiveEntry);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// unsupported encodings or compression methods, let the external tools deal with it
+			return closeArchive();
+		}
+
+		return files;
+	}
+
+	private Map<String, Object> closeArchive() throws IOException {
+		for (Umod umod : umods) umod.close();
+		umods.clear();
+		if (archive != null) archive.close();
+		archive = null;
+		return null;
+	}
+
 	private Map<String, Umod.UmodFile> umodFiles(Path path) throws IOException {
 		final Map<String, Umod.UmodFile> fileList = new HashMap<>();
 
@@ -196,16 +387,18 @@ public class Incoming implements Closeable {
 		Path tempDir = Files.createTempDirectory("archive-incoming-");
 
 		if (ArchiveUtil.isArchive(incoming)) {
-			// its an archive of files of some sort, unpack it to the root
+			// its an archive of files of some sort, unpack it to the root, hashing files as they're written where possible
 			try {
-				return ArchiveUtil.extract(incoming, tempDir, EXTRACT_TIMEOUT, true);
+				return ArchiveUtil.extract(incoming, tempDir, EXTRACT_TIMEOUT, true, hashes);
 			} catch (InterruptedException e) {
 				throw new IOException("Extract took too long", e);
 			}
 		} else {
 			// its simply an loose file of a type we're interested in
 			if (FileType.important(incoming)) {
-				return Files.copy(incoming, tempDir.resolve(incoming.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+				Path copy = Files.copy(incoming, tempDir.resolve(incoming.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+				hashes.put(copy.toString(), hash);
+				return copy;
 			}
 		}
 
@@ -221,15 +414,19 @@ public class Incoming implements Closeable {
 	public class IncomingFile {
 
 		public final String file;
+		public final String extension;
 
-		private IncomingFile(String file) {
+		private IncomingFile(String file, String extension) {
 			this.file = file;
+			this.extension = extension;
 		}
 
 		public SeekableByteChannel asChannel() {
 			try {
 				if (files.get(file) instanceof Path) {
 					return FileChannel.open((Path)files.get(file));
+				} else if (files.get(file) instanceof ArchiveEntry) {
+					return FileChannel.open(((ArchiveEntry)files.get(file)).materialise());
 				} else if (files.get(file) instanceof Umod.UmodFile) {
 					return ((Umod.UmodFile)files.get(file)).read();
 				}
@@ -240,6 +437,79 @@ public class Incoming implements Closeable {
 			return null;
 		}
 
+		/**
+		 * Read this file as an Unreal package.
+		 * <p>
+		 * A file's package is only read once, and the same instance is shared
+		 * by all callers, so it should not be closed. Packages are closed along
+		 * with the {@link Incoming} they belong to, or may be released earlier
+		 * via {@link #release()}.
+		 *
+		 * @return the package
+		 */
+		public Package asPackage() {
+			synchronized (packages) {
+				return packages.computeIfAbsent(file, f -> {
+					final long started = System.nanoTime();
+					try {
+						return new Package(new PackageReader(asChannel()));
+					} finally {
+						log.time("index.package", started);
+					}
+				});
+			}
+		}
+
+		/**
+		 * Close this file's package, if it has been read, rather than keeping
+		 * it open until the {@link Incoming} is closed.
+		 * <p>
+		 * This is intended for callers reading many packages which are each
+		 * only needed once, such as the maps within a map pack. If the package
+		 * is requested again later, it will be read again.
+		 */
+		public void release() {
+			final Package pkg;
+			synchronized (packages) {
+				pkg = packages.remove(file);
+			}
+			if (pkg == null) return;
+
+			try {
+				pkg.close();
+			} catch (IOException e) {
+				log.log(IndexLog.EntryType.INFO, "Failed cleaning up package " + pkg, e);
+			}
+		}
+
+		/**
+		 * Read this file as an {@link IntFile}.
+		 * <p>
+		 * A file is only parsed once, and the same instance is shared by all
+		 * callers.
+		 *
+		 * @param syntheticRoots see {@link IntFile#IntFile(SeekableByteChannel, boolean)}
+		 * @return the parsed file
+		 * @throws IOException failed to read the file
+		 */
+		public IntFile asIntFile(boolean syntheticRoots) throws IOException {
+			final String key = syntheticRoots ? file + "#synthetic" : file;
+
+			IntFile intFile = intFiles.get(key);
+			if (intFile != null) return intFile;
+
+			try (SeekableByteChannel channel = asChannel()) {
+				intFile = new IntFile(channel, syntheticRoots);
+			}
+			intFiles.put(key, intFile);
+
+			return intFile;
+		}
+
+		public IntFile asIntFile() throws IOException {
+			return asIntFile(false);
+		}
+
 		public String fileName() {
 			return Util.fileName(file);
 		}
@@ -248,6 +518,8 @@ public class Incoming implements Closeable {
 			try {
 				if (files.get(file) instanceof Path) {
 					return (int)Files.size((Path)files.get(file));
+				} else if (files.get(file) instanceof ArchiveEntry) {
+					return (int)((ArchiveEntry)files.get(file)).entry.getSize();
 				} else if (files.get(file) instanceof Umod.UmodFile) {
 					return ((Umod.UmodFile)files.get(file)).size;
 				}
@@ -261,6 +533,8 @@ public class Incoming implements Closeable {
 			try {
 				if (files.get(file) instanceof Path) {
 					return Files.getLastModifiedTime((Path)files.get(file)).toInstant().atOffset(ZoneOffset.UTC).toLocalDateTime(); // hmm?
+				} else if (files.get(file) instanceof ArchiveEntry) {
+					return ((ArchiveEntry)files.get(file)).entry.getLastModifiedTime().toInstant().atOffset(ZoneOffset.UTC).toLocalDateTime();
 				} else if (files.get(file) instanceof Umod.UmodFile) {
 					Set<IncomingFile> umodMaybe = files(FileType.UMOD);
 					if (!umodMaybe.isEmpty()) return umodMaybe.iterator().next().fileDate();
@@ -272,16 +546,23 @@ public class Incoming implements Closeable {
 		}
 
 		public String hash() {
+			String known = hashes.get(file);
+			if (known != null) return known;
+
 			try {
+				String hash = null;
 				if (files.get(file) instanceof Path) {
-					return Util.hash((Path)files.get(file));
+					hash = Util.hash((Path)files.get(file));
+				} else if (files.get(file) instanceof ArchiveEntry) {
+					hash = ((ArchiveEntry)files.get(file)).hash();
 				} else if (files.get(file) instanceof Umod.UmodFile) {
-					return ((Umod.UmodFile)files.get(file)).sha1();
+					hash = ((Umod.UmodFile)files.get(file)).sha1();
 				}
+				if (hash != null) hashes.put(file, hash);
+				return hash;
 			} catch (IOException e) {
 				throw new IllegalStateException("Failed to get hash for " + file, e);
 			}
-			return null;
 		}
 
 		@Override
@@ -303,6 +584,81 @@ public class Incoming implements Closeable {
 		}
 	}
 
+	/**
+	 * A file within a lazily processed zip archive, which is only written
+	 * to disk once something needs to read it as a file.
+	 */
+	private class ArchiveEntry {
+
+		private final ZipEntry entry;
+		private final Path path;
+
+		private ArchiveEntry(ZipEntry entry, Path path) {
+			this.entry = entry;
+			this.path = path;
+		}
+
+		private Path materialise() throws IOException {
+			synchronized (Incoming.this) {
+				if (Files.exists(path)) return path;
+
+				if (extractedRoot == null) {
+					try {
+						Files.createDirectories(path.getParent());
+						// hash the file while writing it, so it need not be read again later
+						hashes.put(path.toString(), Util.copyAndHash(archive.getInputStream(entry), path));
+						if (entry.getLastModifiedTime() != null) Files.setLastModifiedTime(path, entry.getLastModifiedTime());
+						return path;
+					} catch (IOException e) {
+						// the entry could not be read in-process, so extract everything using the external tools instead
+						Files.deleteIfExists(path);
+						extractAll();
+					}
+				}
+
+				final Path extractedPath = extractedPath();
+				if (!Files.exists(extractedPath)) throw new IOException("Failed to extract file " + entry.getName());
+				return extractedPath;
+			}
+		}
+
+		private String hash() throws IOException {
+			synchronized (Incoming.this) {
+				if (hashes.containsKey(path.toString())) return hashes.get(path.toString());
+				if (extractedRoot != null && hashes.containsKey(extractedPath().toString())) {
+					return hashes.get(extractedPath().toString());
+				}
+				if (Files.exists(path) || extractedRoot != null) return Util.hash(materialise());
+			}
+			try (InputStream is = archive.getInputStream(entry)) {
+				return Util.hash(is);
+			} catch (IOException e) {
+				return Util.hash(materialise());
+			}
+		}
+
+		/**
+		 * @return where this entry would be found if the archive has been fully extracted
+		 */
+		private Path extractedPath() {
+			return extractedRoot.resolve(contentRoot.toAbsolutePath().normalize().relativize(path));
+		}
+
+		/**
+		 * Extract the whole archive alongside the content root, rather than
+		 * into it, since files already written to the content root may be
+		 * open, and would otherwise be lost if extraction fails.
+		 */
+		private void extractAll() throws IOException {
+			extractedRoot = Files.createTempDirectory(contentRoot.toAbsolutePath().getParent(), "archive-extracted-");
+			try {
+				ArchiveUtil.extract(submission.filePath, extractedRoot, EXTRACT_TIMEOUT, false, hashes);
+			} catch (InterruptedException e) {
+				throw new IOException("Extract took too long", e);
+			}
+		}
+	}
+
 	public static class UnsupportedFileTypeException extends UnsupportedOperationException {
 
 		public UnsupportedFileTypeException(String message) {
@@ -1,7 +1,9 @@
 package net.shrimpworks.unreal.archive.content;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class IndexLog {
 
@@ -15,9 +17,14 @@ public class IndexLog {
 
 	public final List<LogEntry> log;
 
+	// time spent in each stage of indexing this submission, in nanoseconds
+	public final Map<String, Long> timings;
+
 	public IndexLog(Submission submission) {
 		this.submission = submission;
-		this.log = new ArrayList<>();
+		// entries may be added by background transfers, as well as the indexing thread
+		this.log = new CopyOnWriteArrayList<>();
+		this.timings = new ConcurrentHashMap<>();
 	}
 
 	public void log(EntryType type, String message) {
@@ -28,6 +35,24 @@ public class IndexLog {
 		this.log.add(new LogEntry(System.currentTimeMillis(), type, message, e));
 	}
 
+	/**
+	 * Record the time spent in a stage of indexing, since the provided start
+	 * time.
+	 * <p>
+	 * Time spent in the same stage more than once is added together. The
+	 * current time is returned, so it may be used as the start time of the
+	 * next stage.
+	 *
+	 * @param stage   stage name, see {@link IndexMetrics}
+	 * @param started start time of the stage, from {@link System#nanoTime()}
+	 * @return the current time, from {@link System#nanoTime()}
+	 */
+	public long time(String stage, long started) {
+		final long now = System.nanoTime();
+		timings.merge(stage, now - started, Long::sum);
+		return now;
+	}
+
 	public boolean ok() {
 		return log.isEmpty() || log.stream().noneMatch(l -> l.type == EntryType.FATAL);
 	}
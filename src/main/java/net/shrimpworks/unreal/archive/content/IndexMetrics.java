@@ -0,0 +1,242 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import net.shrimpworks.unreal.archive.Util;
+
+/**
+ * Collects the time spent in each stage of indexing, across all files in
+ * an indexing run.
+ * <p>
+ * Stage timings are recorded per file in each file's {@link IndexLog}, and
+ * added to a histogram per stage here once the file is done. The files
+ * which took the longest overall are also kept, so pathological inputs can
+ * be found.
+ * <p>
+ * Results may be written as JSON, or in the Prometheus text exposition
+ * format.
+ */
+public class IndexMetrics {
+
+	/**
+	 * The stage recorded for the total time spent on each file.
+	 */
+	public static final String TOTAL = "total";
+
+	// histogram bucket upper bounds, in seconds
+	static final double[] BUCKETS = { 0.001, 0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300 };
+
+	private static final int SLOWEST = 10;
+
+	private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+	private final Map<String, Histogram> stages;
+	private final PriorityQueue<SlowFile> slowest;
+
+	public IndexMetrics() {
+		this.stages = new ConcurrentSkipListMap<>();
+		this.slowest = new PriorityQueue<>(Comparator.comparingLong(s -> s.nanos));
+	}
+
+	/**
+	 * Record all stage timings of a file.
+	 *
+	 * @param log the file's index log
+	 */
+	public void record(IndexLog log) {
+		log.timings.forEach(this::record);
+
+		Long total = log.timings.get(TOTAL);
+		if (total != null && log.submission != null) {
+			synchronized (slowest) {
+				slowest.add(new SlowFile(log.submission.filePath, total, new TreeMap<>(log.timings)));
+				if (slowest.size() > SLOWEST) slowest.poll();
+			}
+		}
+	}
+
+	/**
+	 * Record time spent in a stage.
+	 *
+	 * @param stage stage name
+	 * @param nanos elapsed time in nanoseconds
+	 */
+	public void record(String stage, long nanos) {
+		stages.computeIfAbsent(stage, s -> new Histogram()).record(nanos);
+	}
+
+	/**
+	 * @return histograms for all stages recorded, ordered by stage name
+	 */
+	public Map<String, Histogram> stages() {
+		return stages;
+	}
+
+	/**
+	 * @return the files which took longest to index, slowest first
+	 */
+	public List<SlowFile> slowest() {
+		synchronized (slowest) {
+			return slowest.stream()
+						  .sorted(Comparator.comparingLong((SlowFile s) -> s.nanos).reversed())
+						  .collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Write metrics to a file, as JSON if the file name ends in
+	 * <code>.json</code>, otherwise as Prometheus text.
+	 *
+	 * @param path file to write to
+	 * @throws IOException failed to write the file
+	 */
+	public void write(Path path) throws IOException {
+		String out = Util.extension(path).equalsIgnoreCase("json") ? toJson() : toPrometheus();
+		Files.write(path, out.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public String toJson() throws IOException {
+		Map<String, Object> stageOut = new LinkedHashMap<>();
+		stages.forEach((name, h) -> {
+			Map<String, Object> s = new LinkedHashMap<>();
+			s.put("count", h.count());
+			s.put("sum", h.sum());
+			s.put("max", h.max());
+			Map<String, Long> buckets = new LinkedHashMap<>();
+			long[] counts = h.buckets();
+			for (int i = 0; i < BUCKETS.length; i++) buckets.put(Double.toString(BUCKETS[i]), counts[i]);
+			buckets.put("+Inf", h.count());
+			s.put("buckets", buckets);
+			stageOut.put(name, s);
+		});
+
+		List<Map<String, Object>> slowOut = new ArrayList<>();
+		for (SlowFile s : slowest()) {
+			Map<String, Object> f = new LinkedHashMap<>();
+			f.put("file", s.file.toString());
+			f.put("seconds", seconds(s.nanos));
+			f.put("stages", s.stages.entrySet().stream()
+									.collect(Collectors.toMap(Map.Entry::getKey, e -> seconds(e.getValue()),
+															  (a, b) -> a, LinkedHashMap::new)));
+			slowOut.add(f);
+		}
+
+		Map<String, Object> out = new LinkedHashMap<>();
+		out.put("stages", stageOut);
+		out.put("slowest", slowOut);
+		return JSON.writeValueAsString(out);
+	}
+
+	public String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("# HELP unreal_archive_index_stage_seconds Time spent in each stage of indexing.\n");
+		sb.append("# TYPE unreal_archive_index_stage_seconds histogram\n");
+		stages.forEach((name, h) -> {
+			long[] counts = h.buckets();
+			for (int i = 0; i < BUCKETS.length; i++) {
+				sb.append(String.format(Locale.ROOT, "unreal_archive_index_stage_seconds_bucket{stage=\"%s\",le=\"%s\"} %d%n",
+										name, BUCKETS[i], counts[i]));
+			}
+			sb.append(String.format(Locale.ROOT, "unreal_archive_index_stage_seconds_bucket{stage=\"%s\",le=\"+Inf\"} %d%n",
+									name, h.count()));
+			sb.append(String.format(Locale.ROOT, "unreal_archive_index_stage_seconds_sum{stage=\"%s\"} %f%n", name, h.sum()));
+			sb.append(String.format(Locale.ROOT, "unreal_archive_index_stage_seconds_count{stage=\"%s\"} %d%n", name, h.count()));
+		});
+		return sb.toString();
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / (double)TimeUnit.SECONDS.toNanos(1);
+	}
+
+	/**
+	 * A histogram of times spent in a single stage.
+	 * <p>
+	 * Bucket counts are cumulative, as per Prometheus histograms, so each
+	 * bucket includes all observations less than or equal to its bound.
+	 */
+	public static class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		void record(long nanos) {
+			double seconds = seconds(nanos);
+			for (int i = 0; i < BUCKETS.length; i++) {
+				if (seconds <= BUCKETS[i]) buckets.incrementAndGet(i);
+			}
+			count.incrementAndGet();
+			sum.addAndGet(nanos);
+			max.accumulateAndGet(nanos, Math::max);
+		}
+
+		public long count() {
+			return count.get();
+		}
+
+		/**
+		 * @return total time, in seconds
+		 */
+		public double sum() {
+			return seconds(sum.get());
+		}
+
+		/**
+		 * @return longest time recorded, in seconds
+		 */
+		public double max() {
+			return seconds(max.get());
+		}
+
+		/**
+		 * @return average time, in seconds
+		 */
+		public double mean() {
+			long c = count.get();
+			return c == 0 ? 0 : sum() / c;
+		}
+
+		/**
+		 * @return cumulative counts of observations within each bucket
+		 */
+		public long[] buckets() {
+			long[] result = new long[BUCKETS.length];
+			for (int i = 0; i < result.length; i++) result[i] = buckets.get(i);
+			return result;
+		}
+	}
+
+	public static class SlowFile {
+
+		public final Path file;
+		public final long nanos;
+		public final Map<String, Long> stages;
+
+		public SlowFile(Path file, long nanos, Map<String, Long> stages) {
+			this.file = file;
+			this.nanos = nanos;
+			this.stages = stages;
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package net.shrimpworks.unreal.archive.content;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class IndexResult<T extends Content> {
 
@@ -19,15 +22,69 @@ public class IndexResult<T extends Content> {
 		public final String name;
 		public final Path path;
 
+		// for images, the hash of the image content, and an optional reduced size copy
+		public final String hash;
+		public final NewAttachment thumbnail;
+
+		private final CompletableFuture<Path> written;
+
 		public NewAttachment(Content.AttachmentType type, String name, Path path) {
+			this(type, name, CompletableFuture.completedFuture(path), path);
+		}
+
+		public NewAttachment(Content.AttachmentType type, String name, CompletableFuture<Path> written, Path path) {
+			this(type, name, written, path, null, null);
+		}
+
+		/**
+		 * Create a new attachment for a file which is still being written
+		 * in the background.
+		 *
+		 * @param type      attachment type
+		 * @param name      attachment name
+		 * @param written   completes once the file has been written
+		 * @param path      path the file will be written to
+		 * @param hash      hash of the attachment content, may be null
+		 * @param thumbnail reduced size copy of an image, may be null
+		 */
+		public NewAttachment(Content.AttachmentType type, String name, CompletableFuture<Path> written, Path path,
+							 String hash, NewAttachment thumbnail) {
 			this.type = type;
 			this.name = name;
 			this.path = path;
+			this.written = written;
+			this.hash = hash;
+			this.thumbnail = thumbnail;
+		}
+
+		/**
+		 * Get a future which completes once the attachment's file has been
+		 * written.
+		 *
+		 * @return the file write future
+		 */
+		public CompletableFuture<Path> written() {
+			return written;
+		}
+
+		/**
+		 * Wait for the attachment's file to be written.
+		 *
+		 * @return the written file
+		 * @throws IOException the file could not be written
+		 */
+		public Path await() throws IOException {
+			try {
+				return written.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+				throw new IOException("Failed to write attachment " + name, e.getCause());
+			}
 		}
 
 		@Override
 		public String toString() {
-			return String.format("NewAttachment [type=%s, name=%s, path=%s]", type, name, path);
+			return String.format("NewAttachment [type=%s, name=%s, path=%s, hash=%s]", type, name, path, hash);
 		}
 	}
 }
@@ -3,11 +3,11 @@ package net.shrimpworks.unreal.archive.content;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -22,7 +22,6 @@ import javax.imageio.ImageIO;
 import net.shrimpworks.unreal.archive.Util;
 import net.shrimpworks.unreal.packages.IntFile;
 import net.shrimpworks.unreal.packages.Package;
-import net.shrimpworks.unreal.packages.PackageReader;
 import net.shrimpworks.unreal.packages.entities.ExportedObject;
 import net.shrimpworks.unreal.packages.entities.Import;
 import net.shrimpworks.unreal.packages.entities.Named;
@@ -41,14 +40,19 @@ public class IndexUtils {
 															   Pattern.CASE_INSENSITIVE);
 
 	public static final String SHOT_NAME = "%s_shot_%s_%d.png";
+	public static final String THUMB_NAME = "%s_thumb.png";
+
+	// matches the width screenshots are displayed at on content pages
+	public static final int THUMB_WIDTH = 300;
+
+	private static volatile ImageEncoder imageEncoder;
 
 	public static String game(Set<Incoming.IncomingFile> files) throws IOException {
 		if (files.isEmpty()) return UNKNOWN;
-		try (Package pkg = new Package(new PackageReader(files.iterator().next().asChannel()))) {
-			if (pkg.version < 68) return "Unreal";
-			else if (pkg.version < 117) return "Unreal Tournament";
-			else return "Unreal Tournament 2004";
-		}
+		Package pkg = files.iterator().next().asPackage();
+		if (pkg.version < 68) return "Unreal";
+		else if (pkg.version < 117) return "Unreal Tournament";
+		else return "Unreal Tournament 2004";
 	}
 
 	/**
@@ -62,6 +66,15 @@ public class IndexUtils {
 	 * @return list of images read from the map
 	 */
 	public static List<BufferedImage> screenshots(Incoming incoming, Package map, Property screenshot) {
+		final long started = System.nanoTime();
+		try {
+			return readScreenshots(incoming, map, screenshot);
+		} finally {
+			incoming.log.time("index.screenshots", started);
+		}
+	}
+
+	private static List<BufferedImage> readScreenshots(Incoming incoming, Package map, Property screenshot) {
 		List<BufferedImage> images = new ArrayList<>();
 		if (screenshot != null) {
 			ObjectReference shotRef = ((ObjectProperty)screenshot).value;
@@ -94,15 +107,6 @@ public class IndexUtils {
 				}
 			} catch (Exception e) {
 				incoming.log.log(IndexLog.EntryType.CONTINUE, "Failed to read screenshot from packages", e);
-			} finally {
-				// cleanup if we spun up an external package for screenshots
-				if (shotPackage != map) {
-					try {
-						shotPackage.close();
-					} catch (IOException e) {
-						incoming.log.log(IndexLog.EntryType.INFO, "Screenshot cleanup failed", e);
-					}
-				}
 			}
 		} else {
 			// there's no Screenshot property, lets hunt through the package for possible screenshots
@@ -169,9 +173,35 @@ public class IndexUtils {
 		return null;
 	}
 
+	/**
+	 * Set the encoder used to write images saved via
+	 * {@link #saveImages(String, Content, List, Set)}.
+	 *
+	 * @param encoder image encoder
+	 */
+	public static void imageEncoder(ImageEncoder encoder) {
+		imageEncoder = encoder;
+	}
+
+	private static ImageEncoder imageEncoder() {
+		if (imageEncoder == null) {
+			synchronized (IndexUtils.class) {
+				if (imageEncoder == null) imageEncoder = ImageEncoder.defaults();
+			}
+		}
+		return imageEncoder;
+	}
+
 	/**
 	 * Write out a collection of {@link BufferedImage}s as files and collect
 	 * them as content attachments.
+	 * <p>
+	 * Images are encoded and written in the background by the configured
+	 * {@link ImageEncoder}, and the attachments returned will complete once
+	 * they have been written, see {@link IndexResult.NewAttachment#await()}.
+	 * <p>
+	 * Images identical to one already attached are skipped, and a reduced
+	 * size thumbnail is created for images wider than {@link #THUMB_WIDTH}.
 	 *
 	 * @param shotTemplate template for filenames, should contain %s and %d
 	 * @param content      the content
@@ -182,16 +212,35 @@ public class IndexUtils {
 	public static void saveImages(
 			String shotTemplate, Content content, List<BufferedImage> screenshots, Set<IndexResult.NewAttachment> attachments)
 			throws IOException {
-		for (int i = 0; i < screenshots.size(); i++) {
-			String shotName = String.format(shotTemplate, Util.slug(content.name), content.hash.substring(0, 8), attachments.size() + 1);
-			Path out = Paths.get(shotName);
-			ImageIO.write(screenshots.get(i), "png", out.toFile());
-			attachments.add(new IndexResult.NewAttachment(Content.AttachmentType.IMAGE, shotName, out));
+		ImageEncoder encoder = imageEncoder();
+		for (BufferedImage image : screenshots) {
+			// map packs and such often contain the same screenshot several times
+			String hash = ImageEncoder.hash(image);
+			if (attachments.stream().anyMatch(a -> hash.equals(a.hash))) continue;
+
+			String shotName = encoder.fileName(
+					String.format(shotTemplate, Util.slug(content.name), content.hash.substring(0, 8), attachments.size() + 1)
+			);
+			Path out = encoder.output(shotName);
+
+			IndexResult.NewAttachment thumb = null;
+			if (image.getWidth() > THUMB_WIDTH) {
+				String thumbName = encoder.fileName(String.format(THUMB_NAME, Util.plainName(shotName)));
+				Path thumbOut = encoder.output(thumbName);
+				thumb = new IndexResult.NewAttachment(Content.AttachmentType.IMAGE, thumbName,
+													  encoder.thumbnail(image, THUMB_WIDTH, thumbOut), thumbOut);
+			}
+
+			attachments.add(new IndexResult.NewAttachment(Content.AttachmentType.IMAGE, shotName,
+														  encoder.write(image, out), out, hash, thumb));
 		}
 	}
 
 	/**
 	 * Search for a package within the indexed content.
+	 * <p>
+	 * The package returned is shared via {@link Incoming.IncomingFile#asPackage()},
+	 * and should not be closed.
 	 *
 	 * @param incoming content being indexed
 	 * @param pkg      package to find
@@ -203,7 +252,7 @@ public class IndexUtils {
 			String name = f.fileName();
 			name = name.substring(0, name.lastIndexOf("."));
 			if (name.equalsIgnoreCase(pkg)) {
-				return new Package(new PackageReader(f.asChannel()));
+				return f.asPackage();
 			}
 		}
 		throw new IllegalStateException("Failed to find package " + pkg);
@@ -219,8 +268,8 @@ public class IndexUtils {
 		List<BufferedImage> images = new ArrayList<>();
 		Set<Incoming.IncomingFile> files = incoming.files(Incoming.FileType.IMAGE);
 		for (Incoming.IncomingFile img : files) {
-			try {
-				BufferedImage image = ImageIO.read(Channels.newInputStream(Objects.requireNonNull(img.asChannel())));
+			try (InputStream is = Channels.newInputStream(Objects.requireNonNull(img.asChannel()))) {
+				BufferedImage image = ImageIO.read(is);
 				if (image != null) images.add(image);
 			} catch (Exception e) {
 				incoming.log.log(IndexLog.EntryType.CONTINUE, "Failed to load image from archive", e);
@@ -301,7 +350,7 @@ public class IndexUtils {
 		return intFiles.stream()
 					   .map(f -> {
 						   try {
-							   return new IntFile(f.asChannel(), syntheticRoots);
+							   return f.asIntFile(syntheticRoots);
 						   } catch (IOException e) {
 							   incoming.log.log(IndexLog.EntryType.CONTINUE, "Couldn't load INT file " + f.fileName(), e);
 							   return null;
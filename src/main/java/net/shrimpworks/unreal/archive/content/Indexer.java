@@ -7,18 +7,25 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import net.shrimpworks.unreal.archive.Util;
 import net.shrimpworks.unreal.archive.YAML;
@@ -32,15 +39,48 @@ public class Indexer {
 	private final ContentManager contentManager;
 	private final IndexerEvents events;
 	private final IndexerPostProcessor postProcessor;
+	private final boolean lazyExtract;
+	private final HashCache hashCache;
 
 	public Indexer(ContentManager contentManager, IndexerEvents events) {
 		this(contentManager, events, new IndexerPostProcessor() {});
 	}
 
 	public Indexer(ContentManager contentManager, IndexerEvents events, IndexerPostProcessor postProcessor) {
+		this(contentManager, events, postProcessor, false, HashCache.memory());
+	}
+
+	/**
+	 * Create a new indexer.
+	 *
+	 * @param contentManager content manager to store indexed content in
+	 * @param events         receives indexing progress and results
+	 * @param postProcessor  allows modification of content before it is stored
+	 * @param lazyExtract    only extract the files within zip archives which are
+	 *                       actually read during indexing, see {@link Incoming}
+	 * @param hashCache      cache used to avoid re-hashing unchanged files
+	 */
+	public Indexer(ContentManager contentManager, IndexerEvents events, IndexerPostProcessor postProcessor, boolean lazyExtract,
+				   HashCache hashCache) {
 		this.contentManager = contentManager;
 		this.events = events;
 		this.postProcessor = postProcessor;
+		this.lazyExtract = lazyExtract;
+		this.hashCache = hashCache;
+	}
+
+	/**
+	 * Indexes a path or individual file, one file at a time.
+	 *
+	 * @param force     if content has already been indexed, index it again
+	 * @param forceType if not null, use the specified content type, rather than
+	 *                  attempting to discover it automatically
+	 * @param inputPath directories or file paths to index
+	 * @throws IOException file access failure
+	 * @see #index(boolean, ContentType, int, Path...)
+	 */
+	public void index(boolean force, ContentType forceType, Path... inputPath) throws IOException {
+		index(force, forceType, 1, inputPath);
 	}
 
 	/**
@@ -68,14 +108,26 @@ public class Indexer {
 	 * content will be handed to and processed via the associated {@link IndexHandler}
 	 * implementation, which further enriches it, and finally returns it via a
 	 * {@link Consumer}.
+	 * <p>
+	 * When indexing with a concurrency greater than 1, files are hashed and
+	 * extracted, and then classified and indexed, on separate pools of worker
+	 * threads. Variation detection, storage of indexed content, and all
+	 * {@link IndexerEvents} callbacks still happen on the calling thread, in the
+	 * same order as they would when indexing sequentially.
+	 * <p>
+	 * The time spent in each stage of indexing is recorded in each file's
+	 * {@link IndexLog}, and collected for the whole run in an
+	 * {@link IndexMetrics}, which is provided to
+	 * {@link IndexerEvents#metrics(IndexMetrics)} before indexing completes.
 	 *
-	 * @param force     if content has already been indexed, index it again
-	 * @param forceType if not null, use the specified content type, rather than
-	 *                  attempting to discover it automatically
-	 * @param inputPath directories or file paths to index
+	 * @param force       if content has already been indexed, index it again
+	 * @param forceType   if not null, use the specified content type, rather than
+	 *                    attempting to discover it automatically
+	 * @param concurrency number of files to prepare and index at the same time
+	 * @param inputPath   directories or file paths to index
 	 * @throws IOException file access failure
 	 */
-	public void index(boolean force, ContentType forceType, Path... inputPath) throws IOException {
+	public void index(boolean force, ContentType forceType, int concurrency, Path... inputPath) throws IOException {
 		final List<IndexLog> indexLogs = new ArrayList<>();
 
 		// go through all the files in the input path and index them if new
@@ -87,17 +139,53 @@ public class Indexer {
 		events.starting(all.size());
 
 		AtomicInteger done = new AtomicInteger();
+		IndexMetrics metrics = new IndexMetrics();
 
-		all.stream().sorted().forEach(sub -> {
-			IndexLog log = new IndexLog(sub);
-			indexLogs.add(log);
+		Consumer<IndexTask> store = task -> {
+			indexLogs.add(task.log);
 
-			indexFile(sub, log, force, forceType, result -> {
-				events.indexed(sub, result, log);
+			final long started = System.nanoTime();
+			final List<Optional<IndexResult<? extends Content>>> results = new ArrayList<>();
+			storeTask(task, force, results::add);
+			task.stage("store", started);
 
-				events.progress(done.incrementAndGet(), all.size(), sub.filePath);
-			});
-		});
+			task.log.timings.put(IndexMetrics.TOTAL, task.busy);
+			metrics.record(task.log);
+
+			for (Optional<IndexResult<? extends Content>> result : results) {
+				events.indexed(task.sub, result, task.log);
+
+				events.progress(done.incrementAndGet(), all.size(), task.sub.filePath);
+			}
+		};
+
+		List<Submission> sorted = all.stream().sorted().collect(Collectors.toList());
+
+		if (concurrency <= 1) {
+			for (Submission sub : sorted) {
+				store.accept(new IndexTask(sub, force, forceType).prepare().index());
+			}
+		} else {
+			ExecutorService preparePool = Executors.newFixedThreadPool(concurrency);
+			ExecutorService indexPool = Executors.newFixedThreadPool(concurrency);
+			try {
+				Deque<CompletableFuture<IndexTask>> inFlight = new ArrayDeque<>();
+				for (Submission sub : sorted) {
+					// limit how far preparation may run ahead of storage, which must happen in submission order
+					while (!inFlight.isEmpty() && (inFlight.size() >= concurrency * 2 || inFlight.peek().isDone())) {
+						store.accept(inFlight.poll().join());
+					}
+
+					inFlight.add(CompletableFuture.supplyAsync(() -> new IndexTask(sub, force, forceType).prepare(), preparePool)
+												  .thenApplyAsync(IndexTask::index, indexPool));
+				}
+
+				while (!inFlight.isEmpty()) store.accept(inFlight.poll().join());
+			} finally {
+				preparePool.shutdownNow();
+				indexPool.shutdownNow();
+			}
+		}
 
 		int errorCount = 0;
 
@@ -105,6 +193,7 @@ public class Indexer {
 			if (!l.ok()) errorCount++;
 		}
 
+		events.metrics(metrics);
 		events.completed(indexLogs.size(), errorCount);
 	}
 
@@ -169,108 +258,270 @@ public class Indexer {
 		return all;
 	}
 
-	private void indexFile(
-			Submission sub, IndexLog log, boolean force, ContentType forceType, Consumer<Optional<IndexResult<? extends Content>>> done) {
-		try (Incoming incoming = new Incoming(sub, log)) {
-			Content content = prepContent(incoming, force, forceType);
-
-			ContentType type;
-			if (content == null || (type = ContentType.valueOf(content.contentType)) == ContentType.UNKNOWN) return;
+	/**
+	 * Store the outcome of an indexing task.
+	 * <p>
+	 * Content which was already known has its download sources updated, while
+	 * newly indexed content is checked for existing variations, post-processed,
+	 * and checked in to the content manager.
+	 *
+	 * @param task  a prepared and indexed task
+	 * @param force whether re-indexing of known content was forced
+	 * @param done  called for each result stored, or with an empty result on failure
+	 */
+	private void storeTask(IndexTask task, boolean force, Consumer<Optional<IndexResult<? extends Content>>> done) {
+		if (task.failed) {
+			done.accept(Optional.empty());
+			return;
+		}
 
-			type.indexer.get().index(incoming, content, result -> {
-				try {
-					Content current = contentManager.forHash(incoming.hash);
-
-					// check if the item is a variation of existing content
-					if (current == null) {
-						Optional<Content> maybeNewest = contentManager.search(result.content.game, result.content.contentType,
-																			  result.content.name, result.content.author)
-																	  .stream().max(Comparator.comparing(a -> a.releaseDate));
-						Content existing = maybeNewest.orElse(null);
-						if (existing != null) {
-							if (existing.variationOf == null && existing.releaseDate.compareTo(result.content.releaseDate) < 0) {
-								Content variation = contentManager.checkout(existing.hash);
-								variation.variationOf = result.content.hash;
-								contentManager.checkin(new IndexResult<>(variation, Collections.emptySet()), null);
-								log.log(IndexLog.EntryType.CONTINUE,
-										String.format("Flagging original content %s variation", existing.originalFilename));
-							} else {
-								result.content.variationOf = existing.hash;
-								log.log(IndexLog.EntryType.CONTINUE,
-										String.format("Flagging as variation of %s", existing.originalFilename));
-							}
-						}
-					}
+		try {
+			// when indexing concurrently, the same file may have been indexed by an earlier submission while this one was prepared
+			if (task.known == null && !force && task.hash != null && contentManager.forHash(task.hash) != null) {
+				task.known = contentManager.checkout(task.hash);
+			}
 
-					postProcessor.indexed(sub, current, result);
+			if (task.known != null) {
+				updateKnown(task.known, task.sub, task.log);
+				return;
+			}
 
-					if (result.content.name.isEmpty()) {
-						throw new IllegalStateException("Name cannot be blank for " + incoming.submission.filePath);
-					}
+			for (IndexResult<? extends Content> result : task.results) {
+				storeResult(task, result);
+				done.accept(Optional.of(result));
+			}
+		} catch (Throwable e) {
+			task.log.log(IndexLog.EntryType.FATAL, e.getMessage(), e);
+			done.accept(Optional.empty());
+		}
+	}
 
-					// before checkin, remove any "new" attachments which already exist... this is a bit of a hack
-					if (current != null) {
-						result.files.removeIf(f -> {
-							if (current.attachments.stream().anyMatch(a -> a.name.equals(f.name))) {
-								try {
-									Files.deleteIfExists(f.path);
-								} catch (IOException e) {
-									log.log(IndexLog.EntryType.CONTINUE, "Failed to delete duplicate attachment" + f, e);
-								}
-								return true;
-							}
-							return false;
+	private void storeResult(IndexTask task, IndexResult<? extends Content> result) {
+		long time = System.nanoTime();
+
+		// hold the lock for related content, so variations found can't change before this content is stored
+		Lock related = contentManager.relatedLock(result.content);
+		related.lock();
+		try {
+			Content current = contentManager.forHash(task.hash);
+
+			// check if the item is a variation of existing content
+			if (current == null) {
+				Optional<Content> maybeNewest = contentManager.search(result.content.game, result.content.contentType,
+																	  result.content.name, result.content.author)
+															  .stream().max(Comparator.comparing(a -> a.releaseDate));
+				Content existing = maybeNewest.orElse(null);
+				if (existing != null) {
+					if (existing.variationOf == null && existing.releaseDate.compareTo(result.content.releaseDate) < 0) {
+						contentManager.update(existing.hash, variation -> {
+							if (variation.variationOf != null) return false;
+							variation.variationOf = result.content.hash;
+							return true;
 						});
+						task.log.log(IndexLog.EntryType.CONTINUE,
+									 String.format("Flagging original content %s variation", existing.originalFilename));
+					} else {
+						result.content.variationOf = existing.hash;
+						task.log.log(IndexLog.EntryType.CONTINUE,
+									 String.format("Flagging as variation of %s", existing.originalFilename));
 					}
+				}
+			}
 
-					contentManager.checkin(result, incoming.submission);
+			time = task.log.time("store.variations", time);
+
+			postProcessor.indexed(task.sub, current, result);
+
+			if (result.content.name.isEmpty()) {
+				throw new IllegalStateException("Name cannot be blank for " + task.sub.filePath);
+			}
+
+			// wait for attachments still being written, and drop any which could not be
+			result.files.removeIf(f -> {
+				try {
+					f.await();
+					return false;
 				} catch (IOException e) {
-					log.log(IndexLog.EntryType.FATAL, "Failed to store content file data for " + sub.filePath.toString(), e);
+					task.log.log(IndexLog.EntryType.CONTINUE, "Failed to write attachment " + f.name, e);
+					return true;
 				}
-
-				done.accept(Optional.of(result));
 			});
-		} catch (Throwable e) {
-			log.log(IndexLog.EntryType.FATAL, e.getMessage(), e);
-			done.accept(Optional.empty());
+			task.log.time("store.images", time);
+
+			// before checkin, remove any "new" attachments which already exist... this is a bit of a hack
+			if (current != null) {
+				result.files.removeIf(f -> {
+					if (current.attachments.stream().anyMatch(a -> a.name.equals(f.name))) {
+						// thumbnails may still be being written, so only remove files once they're done
+						ContentManager.discard(f, task.log).join();
+						return true;
+					}
+					return false;
+				});
+			}
+
+			contentManager.checkin(result, task.sub, task.log);
+		} catch (IOException e) {
+			task.log.log(IndexLog.EntryType.FATAL, "Failed to store content file data for " + task.sub.filePath.toString(), e);
+		} finally {
+			related.unlock();
 		}
 	}
 
 	/**
-	 * Prepare and identify content for indexing.
+	 * Even when not forcing a full re-index of known content, we can still
+	 * update its download sources.
 	 *
-	 * @param incoming  incoming content to be indexed
-	 * @param force     whether to force re-indexing of known content
-	 * @param forceType force the content type to this, null to auto-detect
-	 * @return null if known, or a new Content instance otherwise
-	 * @throws IOException failed to read content files
+	 * @param content known content
+	 * @param sub     submission which matched the known content
+	 * @param log     log for the submission
+	 * @throws IOException failed to store updated content
 	 */
-	private Content prepContent(Incoming incoming, boolean force, ContentType forceType) throws IOException {
-		Content content = contentManager.checkout(incoming.hash);
-
-		if ((content != null && !force)) {
-			// even when not forcing a full re-index of something, we can still update download sources
-			if (!content.deleted && incoming.submission.sourceUrls != null) {
-				for (String url : incoming.submission.sourceUrls) {
-					if (url != null && !url.isEmpty() && !content.hasDownload(url)) {
-						content.downloads.add(new Content.Download(url, false));
-					}
+	private void updateKnown(Content content, Submission sub, IndexLog log) throws IOException {
+		if (!content.deleted && sub.sourceUrls != null) {
+			for (String url : sub.sourceUrls) {
+				if (url != null && !url.isEmpty() && !content.hasDownload(url)) {
+					content.downloads.add(new Content.Download(url, false));
+				}
+			}
+			contentManager.checkin(new IndexResult<>(content, Collections.emptySet()), sub, log);
+		}
+	}
+
+	/**
+	 * Holds the state of a single submission as it moves through the
+	 * preparation, indexing and storage stages of indexing.
+	 * <p>
+	 * Preparation and indexing may run on any thread, but each stage is only
+	 * ever run by one thread at a time, and failures are recorded in the
+	 * task's log rather than thrown.
+	 */
+	private class IndexTask {
+
+		private final Submission sub;
+		private final IndexLog log;
+		private final boolean force;
+		private final ContentType forceType;
+
+		private final List<IndexResult<? extends Content>> results;
+
+		private Incoming incoming;
+		private String hash;
+		private Content known;
+		private Content content;
+		private boolean failed;
+
+		// total time spent in all stages of indexing this task, excluding time waiting between stages
+		private long busy;
+
+		private IndexTask(Submission sub, boolean force, ContentType forceType) {
+			this.sub = sub;
+			this.log = new IndexLog(sub);
+			this.force = force;
+			this.forceType = forceType;
+			this.results = new ArrayList<>();
+		}
+
+		/**
+		 * Hash, extract, and identify content for indexing.
+		 * <p>
+		 * If the content is already known and indexing is not being forced,
+		 * no extraction or classification is performed.
+		 *
+		 * @return this task
+		 */
+		private IndexTask prepare() {
+			// the stage in progress, recorded once it completes or fails
+			String stage = "hash";
+			long time = System.nanoTime();
+			try {
+				hash = hashCache.hash(sub.filePath);
+				time = stage(stage, time);
+
+				stage = "prepare";
+				Content current = contentManager.checkout(hash);
+				if (current != null && !force) {
+					known = current;
+					stage = null;
+					return this;
+				}
+
+				incoming = new Incoming(sub, hash, log, lazyExtract);
+				incoming.prepare();
+				time = stage(stage, time);
+
+				stage = "classify";
+				ContentType type = forceType == null ? ContentType.classify(incoming) : forceType;
+
+				// TODO better way to handle re-indexing - we already have content, but if type changes we can't re-use it
+				if (current == null || !type.toString().equalsIgnoreCase(current.contentType)) {
+					content = type.newContent(incoming);
+				} else {
+					content = current;
 				}
-				contentManager.checkin(new IndexResult<>(content, Collections.emptySet()), incoming.submission);
+			} catch (Throwable e) {
+				fail(e);
+			} finally {
+				if (stage != null) stage(stage, time);
 			}
-			return null;
+			return this;
 		}
 
-		incoming.prepare();
+		/**
+		 * Process prepared content with its type's {@link IndexHandler}.
+		 * <p>
+		 * Extracted files are cleaned up once indexing completes.
+		 *
+		 * @return this task
+		 */
+		private IndexTask index() {
+			final long started = System.nanoTime();
+			boolean indexing = false;
+			try {
+				ContentType type;
+				if (content == null || (type = ContentType.valueOf(content.contentType)) == ContentType.UNKNOWN) return this;
+
+				indexing = true;
+				type.indexer.get().index(incoming, content, results::add);
+			} catch (Throwable e) {
+				fail(e);
+			} finally {
+				// failed indexing is still recorded, so slow failures show up in metrics
+				if (indexing) stage("index", started);
+				close();
+			}
+			return this;
+		}
 
-		ContentType type = forceType == null ? ContentType.classify(incoming) : forceType;
+		/**
+		 * Record the time spent in a stage of this task.
+		 *
+		 * @param stage   stage name
+		 * @param started start time of the stage, from {@link System#nanoTime()}
+		 * @return the current time, from {@link System#nanoTime()}
+		 */
+		private long stage(String stage, long started) {
+			final long now = log.time(stage, started);
+			busy += now - started;
+			return now;
+		}
 
-		// TODO better way to handle re-indexing - we already have content, but if type changes we can't re-use it
-		if (content == null || !type.toString().equalsIgnoreCase(content.contentType)) {
-			content = type.newContent(incoming);
+		private void fail(Throwable e) {
+			failed = true;
+			log.log(IndexLog.EntryType.FATAL, e.getMessage(), e);
+			close();
 		}
 
-		return content;
+		private void close() {
+			if (incoming == null) return;
+			try {
+				incoming.close();
+			} catch (Throwable e) {
+				log.log(IndexLog.EntryType.INFO, "Failed to clean up incoming files for " + sub.filePath, e);
+			} finally {
+				incoming = null;
+			}
+		}
 	}
 
 	public interface IndexerPostProcessor {
@@ -294,15 +545,38 @@ public class Indexer {
 
 		public void indexed(Submission submission, Optional<IndexResult<? extends Content>> indexed, IndexLog log);
 
+		/**
+		 * Called once all files have been indexed, with the time spent in
+		 * each stage of indexing across all files.
+		 *
+		 * @param metrics indexing stage timings
+		 */
+		public default void metrics(IndexMetrics metrics) {
+		}
+
 		public void completed(int indexedFiles, int errorCount);
 	}
 
 	public static class CLIEventPrinter implements IndexerEvents {
 
 		private final boolean verbose;
+		private final Path metricsFile;
 
 		public CLIEventPrinter(boolean verbose) {
+			this(verbose, null);
+		}
+
+		/**
+		 * Create a new event printer.
+		 *
+		 * @param verbose     print stack traces of errors
+		 * @param metricsFile if not null, indexing metrics are written to this
+		 *                    file once indexing completes, see
+		 *                    {@link IndexMetrics#write(Path)}
+		 */
+		public CLIEventPrinter(boolean verbose, Path metricsFile) {
 			this.verbose = verbose;
+			this.metricsFile = metricsFile;
 		}
 
 		@Override
@@ -325,6 +599,24 @@ public class Indexer {
 			}
 		}
 
+		@Override
+		public void metrics(IndexMetrics metrics) {
+			if (!verbose && metricsFile == null) return;
+
+			System.out.printf("%n%-20s %8s %10s %10s %10s%n", "Stage", "Count", "Mean (s)", "Max (s)", "Total (s)");
+			metrics.stages().forEach((stage, h) -> System.out.printf("%-20s %8d %10.3f %10.3f %10.3f%n",
+																	 stage, h.count(), h.mean(), h.max(), h.sum()));
+
+			if (metricsFile != null) {
+				try {
+					metrics.write(metricsFile);
+					System.out.printf("Wrote indexing metrics to %s%n", metricsFile);
+				} catch (IOException e) {
+					System.err.printf("Failed to write indexing metrics to %s: %s%n", metricsFile, e);
+				}
+			}
+		}
+
 		@Override
 		public void completed(int indexedFiles, int errorCount) {
 			System.out.printf("%nCompleted indexing %d files, with %d errors%n", indexedFiles, errorCount);
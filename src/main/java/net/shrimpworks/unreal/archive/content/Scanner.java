@@ -6,11 +6,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import net.shrimpworks.unreal.archive.CLI;
 import net.shrimpworks.unreal.archive.Util;
@@ -20,13 +30,25 @@ public class Scanner {
 	private final ContentManager contentManager;
 
 	private final boolean newOnly;
+	private final boolean lazyExtract;
+	private final int concurrency;
+	private final boolean unordered;
+	private final HashCache hashCache;
 	private final Pattern nameMatch;
 	private final Pattern nameExclude;
 
 	public Scanner(ContentManager contentManager, CLI cli) {
+		this(contentManager, cli, HashCache.memory());
+	}
+
+	public Scanner(ContentManager contentManager, CLI cli, HashCache hashCache) {
 		this.contentManager = contentManager;
+		this.hashCache = hashCache;
 
 		this.newOnly = cli.option("new-only", "").equalsIgnoreCase("true") || cli.option("new-only", "").equalsIgnoreCase("1");
+		this.lazyExtract = Boolean.parseBoolean(cli.option("lazy-extract", "true"));
+		this.concurrency = Integer.parseInt(cli.option("concurrency", "1"));
+		this.unordered = Boolean.parseBoolean(cli.option("unordered", "false"));
 
 		if (cli.option("match", "").isEmpty()) {
 			this.nameMatch = null;
@@ -41,6 +63,20 @@ public class Scanner {
 		}
 	}
 
+	/**
+	 * Scan and classify files, without indexing them.
+	 * <p>
+	 * When the scanner is configured with a concurrency greater than 1, files
+	 * are hashed, extracted and classified on a pool of worker threads. All
+	 * {@link ScannerEvents} callbacks still happen on the calling thread, and
+	 * results are delivered in the same order they would be when scanning
+	 * sequentially, unless the scanner is configured as unordered, in which
+	 * case results are delivered as soon as they are available.
+	 *
+	 * @param events    receives scan progress and results
+	 * @param inputPath directories or file paths to scan
+	 * @throws IOException file access failure
+	 */
 	public void scan(ScannerEvents events, Path... inputPath) throws IOException {
 		// find all files within the scan path
 		List<Path> all = new ArrayList<>();
@@ -52,14 +88,51 @@ public class Scanner {
 
 		AtomicInteger done = new AtomicInteger();
 
-		all.stream().sorted().forEach(path -> {
-			events.progress(done.incrementAndGet(), all.size(), path);
+		Consumer<ScanTask> publish = task -> {
+			events.progress(done.incrementAndGet(), all.size(), task.path);
 
-			Submission sub = new Submission(path);
-			IndexLog log = new IndexLog(sub);
+			if (task.result != null) events.scanned(task.result);
+		};
+
+		List<Path> sorted = all.stream().sorted().collect(Collectors.toList());
+
+		if (concurrency <= 1) {
+			for (Path path : sorted) {
+				publish.accept(new ScanTask(path).scan());
+			}
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+			try {
+				if (unordered) {
+					BlockingQueue<ScanTask> completed = new LinkedBlockingQueue<>();
+					for (Path path : sorted) {
+						// always deliver a result, even if scanning failed unexpectedly, so we don't wait forever
+						CompletableFuture.supplyAsync(() -> new ScanTask(path).scan(), pool)
+										 .whenComplete((task, e) -> completed.add(task != null ? task : new ScanTask(path).failed(e)));
+					}
+
+					for (int i = 0; i < sorted.size(); i++) publish.accept(completed.take());
+				} else {
+					Deque<CompletableFuture<ScanTask>> inFlight = new ArrayDeque<>();
+					for (Path path : sorted) {
+						// limit how far scanning may run ahead of results, which are published in order
+						while (!inFlight.isEmpty() && (inFlight.size() >= concurrency * 2 || inFlight.peek().isDone())) {
+							publish.accept(inFlight.poll().join());
+						}
+
+						inFlight.add(CompletableFuture.supplyAsync(() -> new ScanTask(path).scan(), pool)
+													  .exceptionally(e -> new ScanTask(path).failed(e)));
+					}
 
-			scanFile(sub, log, events::scanned);
-		});
+					while (!inFlight.isEmpty()) publish.accept(inFlight.poll().join());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while scanning", e);
+			} finally {
+				pool.shutdownNow();
+			}
+		}
 
 		events.completed(done.get());
 	}
@@ -92,37 +165,76 @@ public class Scanner {
 		return all;
 	}
 
-	private void scanFile(Submission sub, IndexLog log, Consumer<ScanResult> done) {
-		Throwable failed = null;
-		Content content = null;
-		ContentType classifiedType = ContentType.UNKNOWN;
+	/**
+	 * The scan of a single file, recording how long each stage of the scan
+	 * took.
+	 */
+	private class ScanTask {
 
-		try (Incoming incoming = new Incoming(sub, log)) {
-			content = contentManager.forHash(incoming.hash);
+		private final Path path;
 
-			if (newOnly && content != null) return;
+		private ScanResult result;
 
-			incoming.prepare();
+		private ScanTask(Path path) {
+			this.path = path;
+		}
+
+		private ScanTask scan() {
+			Submission sub = new Submission(path);
+			IndexLog log = new IndexLog(sub);
 
-			classifiedType = ContentType.classify(incoming);
+			Throwable failed = null;
+			Content content = null;
+			ContentType oldType = null;
+			ContentType classifiedType = ContentType.UNKNOWN;
+			long hashTime = 0;
+			long extractTime = 0;
+			long classifyTime = 0;
 
-		} catch (Throwable e) {
-			failed = e;
-		} finally {
-			if (!newOnly || content == null) {
-				if (failed == null) failed = log.log.stream()
-													.filter(l -> l.type == IndexLog.EntryType.FATAL && l.exception != null)
-													.map(l -> l.exception)
-													.findFirst().orElse(null);
+			try {
+				long start = System.nanoTime();
+				String hash = hashCache.hash(sub.filePath);
+				content = contentManager.forHash(hash);
+				hashTime = System.nanoTime() - start;
 
-				done.accept(new ScanResult(
-						sub.filePath,
-						content != null,
-						content != null ? ContentType.valueOf(content.contentType) : null,
-						classifiedType,
-						failed
-				));
+				if (content != null) oldType = ContentType.valueOf(content.contentType);
+
+				if (newOnly && content != null) return this;
+
+				try (Incoming incoming = new Incoming(sub, hash, log, lazyExtract)) {
+					start = System.nanoTime();
+					incoming.prepare();
+					extractTime = System.nanoTime() - start;
+
+					start = System.nanoTime();
+					classifiedType = ContentType.classify(incoming);
+					classifyTime = System.nanoTime() - start;
+				}
+			} catch (Throwable e) {
+				failed = e;
 			}
+
+			if (failed == null) failed = log.log.stream()
+												.filter(l -> l.type == IndexLog.EntryType.FATAL && l.exception != null)
+												.map(l -> l.exception)
+												.findFirst().orElse(null);
+
+			result = new ScanResult(
+					sub.filePath,
+					content != null,
+					oldType,
+					classifiedType,
+					failed,
+					Duration.ofNanos(hashTime), Duration.ofNanos(extractTime), Duration.ofNanos(classifyTime)
+			);
+
+			return this;
+		}
+
+		private ScanTask failed(Throwable e) {
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+			result = new ScanResult(path, false, null, ContentType.UNKNOWN, cause);
+			return this;
 		}
 	}
 
@@ -134,18 +246,30 @@ public class Scanner {
 		public final ContentType newType;
 		public final Throwable failed;
 
+		public final Duration hashTime;
+		public final Duration extractTime;
+		public final Duration classifyTime;
+
 		public ScanResult(Path filePath, boolean known, ContentType oldType, ContentType newType, Throwable failed) {
+			this(filePath, known, oldType, newType, failed, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+		}
+
+		public ScanResult(Path filePath, boolean known, ContentType oldType, ContentType newType, Throwable failed,
+						  Duration hashTime, Duration extractTime, Duration classifyTime) {
 			this.filePath = filePath;
 			this.known = known;
 			this.oldType = oldType;
 			this.newType = newType;
 			this.failed = failed;
+			this.hashTime = hashTime;
+			this.extractTime = extractTime;
+			this.classifyTime = classifyTime;
 		}
 
 		@Override
 		public String toString() {
-			return String.format("ScanResult [filePath=%s, known=%s, oldType=%s, newType=%s, failed=%s]",
-								 filePath, known, oldType, newType,failed);
+			return String.format("ScanResult [filePath=%s, known=%s, oldType=%s, newType=%s, failed=%s, hashTime=%s, extractTime=%s, classifyTime=%s]",
+								 filePath, known, oldType, newType, failed, hashTime, extractTime, classifyTime);
 		}
 	}
 
@@ -168,12 +292,15 @@ public class Scanner {
 							  excluded != null ? "excluding " + excluded.pattern() : ""
 			);
 
-			System.err.printf("%s;%s;%s;%s;%s%n",
+			System.err.printf("%s;%s;%s;%s;%s;%s;%s;%s%n",
 							  "File",
 							  "Known",
 							  "Current Type",
 							  "Scanned Type",
-							  "Failure");
+							  "Failure",
+							  "Hash ms",
+							  "Extract ms",
+							  "Classify ms");
 		}
 
 		@Override
@@ -183,12 +310,15 @@ public class Scanner {
 
 		@Override
 		public void scanned(ScanResult scanned) {
-			System.out.printf("%s;%s;%s;%s;%s%n",
+			System.out.printf("%s;%s;%s;%s;%s;%d;%d;%d%n",
 							  scanned.filePath,
 							  scanned.known ? "KNOWN" : "NEW",
 							  scanned.oldType != null ? scanned.oldType.name() : "-",
 							  scanned.newType.name(),
-							  scanned.failed != null ? scanned.failed.getClass().getSimpleName() : "-");
+							  scanned.failed != null ? scanned.failed.getClass().getSimpleName() : "-",
+							  scanned.hashTime.toMillis(),
+							  scanned.extractTime.toMillis(),
+							  scanned.classifyTime.toMillis());
 		}
 
 		@Override
@@ -0,0 +1,509 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import net.shrimpworks.unreal.archive.YAML;
+import net.shrimpworks.unreal.archive.content.mappacks.MapPack;
+import net.shrimpworks.unreal.archive.content.maps.GameTypes;
+import net.shrimpworks.unreal.archive.content.maps.Map;
+import net.shrimpworks.unreal.archive.content.models.Model;
+import net.shrimpworks.unreal.archive.content.mutators.Mutator;
+import net.shrimpworks.unreal.archive.content.skins.Skin;
+import net.shrimpworks.unreal.archive.content.voices.Voice;
+
+/**
+ * Generates synthetic content, for load testing and benchmarking the content
+ * manager, indexer and website generation at a larger scale than real data
+ * may be available.
+ * <p>
+ * Content is spread across all content types and games, weighted roughly
+ * as the real archive is, with a small number of prolific authors
+ * responsible for much of the content, names which are often re-used, and
+ * some content being variations of earlier content.
+ * <p>
+ * Every item is derived only from the seed and its index, so the same
+ * corpus is produced on every run, and items may be generated in any order
+ * or in parallel.
+ * <p>
+ * Generated content is not real, and download and image URLs refer only to
+ * reserved example hosts, so a corpus should never be written into, or
+ * mixed with, a real content tree.
+ */
+public class SyntheticCorpus {
+
+	private static final double VARIATION_RATE = 0.05;
+	private static final double UNKNOWN_AUTHOR_RATE = 0.12;
+	private static final double AUTHOR_SKEW = 0.7;
+
+	private static final LocalDateTime FIRST_INDEX = LocalDateTime.of(2018, 6, 1, 0, 0);
+	private static final int INDEX_PERIOD_DAYS = 365 * 4;
+
+	private static final Weighted<ContentType> TYPES = new Weighted<ContentType>()
+			.add(ContentType.MAP, 55)
+			.add(ContentType.SKIN, 15)
+			.add(ContentType.MODEL, 8)
+			.add(ContentType.MUTATOR, 8)
+			.add(ContentType.MAP_PACK, 6)
+			.add(ContentType.VOICE, 4)
+			.add(ContentType.UNKNOWN, 4);
+
+	private static final Weighted<Games> MAP_GAMES = new Weighted<Games>()
+			.add(Games.UNREAL_TOURNAMENT, 60)
+			.add(Games.UNREAL_TOURNAMENT_2004, 25)
+			.add(Games.UNREAL, 12)
+			.add(Games.UNREAL_2, 3);
+
+	private static final Weighted<Games> OTHER_GAMES = new Weighted<Games>()
+			.add(Games.UNREAL_TOURNAMENT, 60)
+			.add(Games.UNREAL_TOURNAMENT_2004, 35)
+			.add(Games.UNREAL, 5);
+
+	private static final java.util.Map<Games, Weighted<String>> MAP_PREFIXES = java.util.Map.of(
+			Games.UNREAL, new Weighted<String>().add("DM-", 60).add("", 40),
+			Games.UNREAL_2, new Weighted<String>().add("DM-", 50).add("XMP-", 50),
+			Games.UNREAL_TOURNAMENT, new Weighted<String>()
+					.add("DM-", 45).add("CTF-", 25).add("DOM-", 8).add("AS-", 5).add("MH-", 5).add("CTF-BT-", 4).add("JB-", 3)
+					.add("DM-1on1-", 3).add("RA-", 2),
+			Games.UNREAL_TOURNAMENT_2004, new Weighted<String>()
+					.add("DM-", 35).add("CTF-", 20).add("ONS-", 20).add("BR-", 8).add("AS-", 5).add("VCTF-", 7).add("DOM-", 5)
+	);
+
+	private static final String[] WORDS = {
+			"Deck", "Morpheus", "Facing", "Worlds", "Fractal", "Phobos", "Tempest", "Hyperblast", "Pressure", "Gothic",
+			"Curse", "Codex", "Barricade", "Stalwart", "Turbine", "Zeto", "Liandri", "Conveyor", "Peak", "Agony",
+			"Shrapnel", "Oblivion", "Rankin", "Antalus", "Asbestos", "Compressed", "Grendel", "Inferno", "Gael",
+			"Crypt", "Fortress", "Nexus", "Orbital", "Reactor", "Sanctum", "Temple", "Vault", "Warehouse", "Abyss",
+			"Bastion", "Citadel", "Dusk", "Eclipse", "Forge", "Glacier", "Harbor", "Island", "Jungle", "Keep",
+			"Lava", "Mines", "Nightfall", "Outpost", "Pyramid", "Quarry", "Ruins", "Station", "Tower", "Underground",
+			"Velocity", "Wasteland", "Xeno", "Yard", "Zenith", "Dark", "Lost", "Broken", "Ancient", "Frozen", "Burning",
+			"Silent", "Hidden", "Twisted", "Ultimate", "Mega", "Space", "Blood", "Steel", "Shadow", "Storm"
+	};
+
+	private static final String[] SUFFIXES = { "", "", "", "", "", "", "2", "][", "-SE", "_v2", "(Final)", "Beta", "XL" };
+
+	private static final String[] SYLLABLES = {
+			"ra", "zo", "ka", "tor", "mek", "dun", "vel", "gor", "ix", "lan", "the", "ar", "bo", "neo", "sly",
+			"rex", "pha", "nox", "kil", "dra", "zer", "ul", "vy", "kor"
+	};
+
+	private static final String[] CLAN_TAGS = { "[BDF]", "{KoS}", "=TWF=", "[UTA]", "|HoF|", "[ROC]" };
+
+	private static final String[] HOSTS = {
+			"https://files.example.org/unreal-archive/",
+			"https://files.example.com/unreal/",
+			"https://mirror.example.net/ut/"
+	};
+
+	private final int count;
+	private final long seed;
+
+	private final String[] authors;
+	private final double[] authorWeights;
+
+	/**
+	 * Create a new corpus.
+	 *
+	 * @param count number of items in the corpus
+	 * @param seed  random seed
+	 */
+	public SyntheticCorpus(int count, long seed) {
+		this.count = count;
+		this.seed = seed;
+
+		// author popularity follows a Zipf-like distribution, with a few authors producing much of the content
+		this.authors = new String[Math.max(10, count / 20)];
+		this.authorWeights = new double[authors.length];
+		double total = 0;
+		for (int i = 0; i < authors.length; i++) {
+			authors[i] = author(random(i, 1));
+			total += 1 / Math.pow(i + 1, AUTHOR_SKEW);
+			authorWeights[i] = total;
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Generate an item.
+	 *
+	 * @param index index of the item, from 0 to {@link #size()}
+	 * @return the generated content
+	 */
+	public Content content(int index) {
+		final SplittableRandom own = random(index, 0);
+
+		// a variation takes its identity (type, game, name and author) from the content it's a variation of
+		final int original = variationOf(own, index);
+		final int identity = original < 0 ? index : root(original);
+		final SplittableRandom id = random(identity, 2);
+
+		final ContentType type = TYPES.pick(id);
+		final Games game = (type == ContentType.MAP ? MAP_GAMES : OTHER_GAMES).pick(id);
+
+		final Content c = type.newContent(null);
+		c.game = game.name;
+		c.name = name(id, type, game);
+		c.author = id.nextDouble() < UNKNOWN_AUTHOR_RATE ? IndexUtils.UNKNOWN : authors[pickAuthor(id)];
+		c.releaseDate = releaseDate(id, game);
+
+		c.hash = hash(own);
+		if (original >= 0) c.variationOf = hash(original);
+
+		c.firstIndex = FIRST_INDEX.plusMinutes((long)((double)index / count * INDEX_PERIOD_DAYS * 24 * 60));
+		c.originalFilename = c.name.replaceAll("[^A-Za-z0-9_\\-]", "") + (own.nextInt(10) < 8 ? ".zip" : ".rar");
+		c.fileSize = fileSize(own, type);
+		c.description = own.nextInt(3) == 0 ? "None" : String.format("%s for %s by %s", c.name, game.name, c.author);
+
+		files(own, c);
+
+		c.downloads.add(new Content.Download(HOSTS[0] + c.hash.substring(0, 2) + "/" + c.originalFilename, true, false,
+											 Content.DownloadState.OK));
+		if (own.nextInt(3) == 0) {
+			c.downloads.add(new Content.Download(HOSTS[1 + own.nextInt(HOSTS.length - 1)] + c.originalFilename, false, false,
+												 Content.DownloadState.OK));
+		}
+
+		for (int i = 0, shots = own.nextInt(4); i < shots; i++) {
+			String shot = String.format(IndexUtils.SHOT_NAME, c.name, c.hash.substring(0, 8), i + 1);
+			c.attachments.add(new Content.Attachment(Content.AttachmentType.IMAGE, shot,
+													 "https://images.example.com/" + c.hash.substring(0, 2) + "/" + shot));
+		}
+
+		details(id, c);
+
+		return c;
+	}
+
+	/**
+	 * Write the whole corpus, generating items in parallel.
+	 * <p>
+	 * Content metadata is written to a <code>content</code> directory within
+	 * the output directory, and submissions, if requested, to a
+	 * <code>submissions</code> directory.
+	 *
+	 * @param output      directory to write to, which should not contain a
+	 *                    real content tree
+	 * @param submissions also write zip files which may be indexed
+	 * @param payload     size of each package file's random payload, see
+	 *                    {@link #submission(int, Path, int)}
+	 * @param progress    receives the number of items written so far
+	 * @throws IOException failed to write content
+	 */
+	public void write(Path output, boolean submissions, int payload, IntConsumer progress) throws IOException {
+		final Path contentPath = Files.createDirectories(output.resolve("content"));
+		final Path submissionPath = output.resolve("submissions");
+		final AtomicInteger done = new AtomicInteger();
+
+		try {
+			IntStream.range(0, count).parallel().forEach(i -> {
+				try {
+					write(content(i), contentPath);
+					if (submissions) submission(i, submissionPath, payload);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				progress.accept(done.incrementAndGet());
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Write an item's metadata to a content directory tree, in the layout
+	 * used by {@link ContentManager}.
+	 *
+	 * @param content content to write
+	 * @param root    root of the content tree
+	 * @return path to the written file
+	 * @throws IOException failed to write the file
+	 */
+	public static Path write(Content content, Path root) throws IOException {
+		Path dir = Files.createDirectories(content.contentPath(root));
+		return Files.write(dir.resolve(String.format("%s_[%s].yml", content.name, content.hash.substring(0, 8))),
+						   YAML.toString(content).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Write a zip file which may be submitted for indexing, containing files
+	 * appropriate for the item's content type.
+	 * <p>
+	 * Package files carry a valid Unreal package header followed by
+	 * <code>payload</code> bytes of random data, so they are recognised and
+	 * classified as the real thing would be, but will not yield anything
+	 * meaningful when their contents are read.
+	 *
+	 * @param index   index of the item to create a submission for
+	 * @param root    directory to write submissions to
+	 * @param payload size of each package file's random payload
+	 * @return path to the written zip file
+	 * @throws IOException failed to write the file
+	 */
+	public Path submission(int index, Path root, int payload) throws IOException {
+		final Content content = content(index);
+		final Path dir = Files.createDirectories(root.resolve(content.hash.substring(0, 2)).resolve(content.hash.substring(2, 4)));
+		final Path zip = dir.resolve(content.originalFilename.replaceAll("\\.[^.]+$", "") + ".zip");
+		final SplittableRandom random = random(index, 3);
+		final String pkg = content.name.replaceAll("[^A-Za-z0-9_\\-]", "");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+			switch (ContentType.valueOf(content.contentType)) {
+				case MAP:
+					entry(zos, "Maps/" + content.name + ".unr", pkg(random, payload));
+					if (random.nextBoolean()) entry(zos, "Textures/" + pkg + "Tex.utx", pkg(random, payload));
+					break;
+				case MAP_PACK:
+					for (MapPack.PackMap map : ((MapPack)content).maps) {
+						entry(zos, "Maps/" + map.name + ".unr", pkg(random, payload));
+					}
+					break;
+				case SKIN:
+					entry(zos, "Textures/" + pkg + ".utx", pkg(random, payload));
+					entry(zos, "System/" + pkg + ".int",
+						  intFile(String.format("Object=(Name=%s.%s1,Class=Texture,Description=\"%s\")", pkg, pkg, content.name)));
+					break;
+				case MODEL:
+					entry(zos, "Textures/" + pkg + "Skins.utx", pkg(random, payload));
+					entry(zos, "System/" + pkg + ".int",
+						  intFile(String.format("Object=(Name=%s.%s,Class=Class,MetaClass=Botpack.TournamentPlayer,Description=\"%s\")",
+												pkg, pkg, content.name)));
+					break;
+				case VOICE:
+					entry(zos, "System/" + pkg + ".int",
+						  intFile(String.format("Object=(Name=%s.%s,Class=Class,MetaClass=Botpack.ChallengeVoicePack,Description=\"%s\")",
+												pkg, pkg, content.name)));
+					break;
+				case MUTATOR:
+					entry(zos, "Textures/" + pkg + "Fx.utx", pkg(random, payload));
+					entry(zos, "System/" + pkg + ".int",
+						  intFile(String.format("Object=(Name=%s.%s,Class=Class,MetaClass=Engine.Mutator,Description=\"%s,%s\")",
+												pkg, pkg, content.name, content.description)));
+					break;
+				default:
+					entry(zos, "Textures/" + pkg + ".utx", pkg(random, payload));
+			}
+			entry(zos, "ReadMe.txt", String.format("%s%nAuthor: %s%n", content.name, content.author).getBytes(StandardCharsets.UTF_8));
+		}
+
+		return zip;
+	}
+
+	private void files(SplittableRandom random, Content c) {
+		String ext;
+		switch (ContentType.valueOf(c.contentType)) {
+			case MAP:
+			case MAP_PACK:
+				ext = ".unr";
+				break;
+			case SKIN:
+			case MODEL:
+				ext = ".utx";
+				break;
+			default:
+				ext = ".u";
+		}
+		c.files.add(new Content.ContentFile(c.name + ext, (int)(c.fileSize * 1.8), hash(random)));
+		if (random.nextInt(3) == 0) c.files.add(new Content.ContentFile(c.name + ".int", 200 + random.nextInt(2000), hash(random)));
+		c.otherFiles = random.nextInt(4);
+	}
+
+	private void details(SplittableRandom random, Content c) {
+		switch (ContentType.valueOf(c.contentType)) {
+			case MAP:
+				Map map = (Map)c;
+				GameTypes.GameType gameType = GameTypes.forMap(c.name);
+				map.gametype = gameType == null ? IndexUtils.UNKNOWN : gameType.name;
+				map.title = IndexUtils.friendlyName(c.name.replaceAll("^[A-Za-z0-9]+-", ""));
+				map.playerCount = String.format("%d - %d Players", 2 + random.nextInt(3), 6 + random.nextInt(11));
+				break;
+			case MAP_PACK:
+				MapPack pack = (MapPack)c;
+				for (int i = 0, maps = 3 + random.nextInt(8); i < maps; i++) {
+					MapPack.PackMap m = new MapPack.PackMap();
+					m.name = c.name.replaceAll("[^A-Za-z0-9_\\-]", "") + "-" + WORDS[random.nextInt(WORDS.length)] + (i + 1);
+					m.title = IndexUtils.friendlyName(m.name);
+					m.author = c.author;
+					pack.maps.add(m);
+				}
+				break;
+			case SKIN:
+				Skin skin = (Skin)c;
+				for (int i = 0, skins = 1 + random.nextInt(4); i < skins; i++) skin.skins.add(c.name + " " + (i + 1));
+				if (random.nextBoolean()) skin.faces.add(word(random, 2));
+				skin.model = random.nextBoolean() ? "Male Commando" : "Female Soldier";
+				skin.teamSkins = random.nextInt(4) == 0;
+				break;
+			case MODEL:
+				Model model = (Model)c;
+				model.models.add(c.name);
+				for (int i = 0, skins = 1 + random.nextInt(3); i < skins; i++) model.skins.add(c.name + " " + (i + 1));
+				break;
+			case VOICE:
+				((Voice)c).voices.add(c.name);
+				break;
+			case MUTATOR:
+				((Mutator)c).mutators.add(new Mutator.NameDescription(c.name, c.description));
+				break;
+			default:
+				// nothing more to describe for unknown content
+		}
+	}
+
+	private String name(SplittableRandom random, ContentType type, Games game) {
+		String base = WORDS[random.nextInt(WORDS.length)];
+		if (random.nextInt(3) == 0) base += WORDS[random.nextInt(WORDS.length)];
+		base += SUFFIXES[random.nextInt(SUFFIXES.length)];
+
+		if (type == ContentType.MAP) return MAP_PREFIXES.get(game).pick(random) + base;
+		return base;
+	}
+
+	private String releaseDate(SplittableRandom random, Games game) {
+		int from;
+		int years;
+		switch (game) {
+			case UNREAL:
+				from = 1998;
+				years = 3;
+				break;
+			case UNREAL_2:
+				from = 2003;
+				years = 2;
+				break;
+			case UNREAL_TOURNAMENT_2004:
+				from = 2004;
+				years = 8;
+				break;
+			default:
+				from = 1999;
+				years = 12;
+		}
+		return String.format("%d-%02d", from + random.nextInt(years), 1 + random.nextInt(12));
+	}
+
+	private int fileSize(SplittableRandom random, ContentType type) {
+		// sizes are roughly log-normal, maps and unknown content (often mods) tend to be larger than other content
+		double mean = (type == ContentType.MAP || type == ContentType.MAP_PACK || type == ContentType.UNKNOWN) ? 14.0 : 12.5;
+		double size = Math.exp(mean + gaussian(random) * 1.2);
+		return (int)Math.max(10_000, Math.min(size, 200_000_000));
+	}
+
+	private int variationOf(SplittableRandom random, int index) {
+		boolean variation = random.nextDouble() < VARIATION_RATE;
+		if (index == 0 || !variation) return -1;
+		return random.nextInt(index);
+	}
+
+	private int root(int index) {
+		int current = index;
+		int original;
+		while ((original = variationOf(random(current, 0), current)) >= 0) current = original;
+		return current;
+	}
+
+	private int pickAuthor(SplittableRandom random) {
+		int i = Arrays.binarySearch(authorWeights, random.nextDouble() * authorWeights[authorWeights.length - 1]);
+		return Math.min(authors.length - 1, i < 0 ? -(i + 1) : i);
+	}
+
+	private String author(SplittableRandom random) {
+		String name = word(random, 2 + random.nextInt(2));
+		switch (random.nextInt(6)) {
+			case 0:
+				return CLAN_TAGS[random.nextInt(CLAN_TAGS.length)] + name;
+			case 1:
+				return name + " " + word(random, 2);
+			default:
+				return name;
+		}
+	}
+
+	private SplittableRandom random(int index, long stream) {
+		return new SplittableRandom(seed * 1_000_003L + stream * 0x5DEECE66DL + index);
+	}
+
+	private String hash(int index) {
+		// replays the draws made at the start of content(int), to find the hash of another item
+		SplittableRandom random = random(index, 0);
+		variationOf(random, index);
+		return hash(random);
+	}
+
+	private static String hash(SplittableRandom random) {
+		return String.format("%016x%016x%08x", random.nextLong(), random.nextLong(), random.nextInt());
+	}
+
+	private static String word(SplittableRandom random, int syllables) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < syllables; i++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+		return sb.toString();
+	}
+
+	private static double gaussian(SplittableRandom random) {
+		// Box-Muller, since SplittableRandom has no nextGaussian
+		return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+	}
+
+	private static byte[] pkg(SplittableRandom random, int payload) {
+		// package header: tag, version and licensee, flags, then name, export and import tables which are all empty
+		ByteBuffer buf = ByteBuffer.allocate(64 + payload).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(0x9E2A83C1).putShort((short)69).putShort((short)0).putInt(0);
+		for (int i = 0; i < 3; i++) buf.putInt(0).putInt(64);
+		buf.putLong(random.nextLong()).putLong(random.nextLong()); // guid
+		buf.putInt(1).putInt(0).putInt(0);                             // generations
+		buf.position(64);
+		while (buf.remaining() >= Long.BYTES) buf.putLong(random.nextLong());
+		return buf.array();
+	}
+
+	private static byte[] intFile(String object) {
+		return String.format("[Public]%n%s%n", object).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void entry(ZipOutputStream zos, String name, byte[] content) throws IOException {
+		zos.putNextEntry(new ZipEntry(name));
+		zos.write(content);
+		zos.closeEntry();
+	}
+
+	private static class Weighted<T> {
+
+		private final List<T> items = new ArrayList<>();
+		private final List<Integer> weights = new ArrayList<>();
+		private int total;
+
+		private Weighted<T> add(T item, int weight) {
+			items.add(item);
+			total += weight;
+			weights.add(total);
+			return this;
+		}
+
+		private T pick(SplittableRandom random) {
+			int n = random.nextInt(total);
+			for (int i = 0; i < items.size(); i++) {
+				if (n < weights.get(i)) return items.get(i);
+			}
+			return items.get(items.size() - 1);
+		}
+	}
+}
@@ -2,7 +2,6 @@ package net.shrimpworks.unreal.archive.content.mappacks;
 
 import java.util.Set;
 
-import net.shrimpworks.unreal.archive.Util;
 import net.shrimpworks.unreal.archive.content.Classifier;
 import net.shrimpworks.unreal.archive.content.Incoming;
 
@@ -28,7 +27,7 @@ public class MapPackClassifier implements Classifier {
 
 		// for now, we specifically disallow UT3, since we don't understand its package structure (> version 500?)
 		for (Incoming.IncomingFile map : maps) {
-			if (Util.extension(map.fileName()).equalsIgnoreCase("ut3")) return false;
+			if (map.extension.equals("ut3")) return false;
 		}
 
 		return true;
@@ -18,7 +18,6 @@ import net.shrimpworks.unreal.archive.content.IndexResult;
 import net.shrimpworks.unreal.archive.content.IndexUtils;
 import net.shrimpworks.unreal.archive.content.maps.GameTypes;
 import net.shrimpworks.unreal.packages.Package;
-import net.shrimpworks.unreal.packages.PackageReader;
 import net.shrimpworks.unreal.packages.entities.ExportedObject;
 import net.shrimpworks.unreal.packages.entities.objects.Object;
 import net.shrimpworks.unreal.packages.entities.properties.Property;
@@ -55,15 +54,14 @@ public class MapPackIndexHandler implements IndexHandler<MapPack> {
 			m.game = game(maps.iterator().next());
 		}
 
-		try (Package map = map(maps.iterator().next())) {
+		try {
+			Package map = maps.iterator().next().asPackage();
 			if (!gameOverride) {
 				// attempt to detect Unreal maps by possible release date
 				if (map.version < 69 || (m.releaseDate != null && m.releaseDate.compareTo(IndexUtils.RELEASE_UT99) < 0)) m.game = "Unreal";
 				// Unreal does not contain a LevelSummary
 				if (map.version == 68 && map.objectsByClassName("LevelSummary").isEmpty()) m.game = "Unreal";
 			}
-		} catch (IOException e) {
-			log.log(IndexLog.EntryType.CONTINUE, "Failed to read map package", e);
 		} catch (Exception e) {
 			log.log(IndexLog.EntryType.CONTINUE, "Caught while parsing map pack: " + e.getMessage(), e);
 		}
@@ -120,7 +118,8 @@ public class MapPackIndexHandler implements IndexHandler<MapPack> {
 
 		List<BufferedImage> images = new ArrayList<>();
 
-		try (Package pkg = map(map)) {
+		try {
+			Package pkg = map.asPackage();
 
 			Collection<ExportedObject> maybeLevelInfo = pkg.objectsByClassName("LevelInfo");
 			if (maybeLevelInfo != null && !maybeLevelInfo.isEmpty()) {
@@ -141,6 +140,9 @@ public class MapPackIndexHandler implements IndexHandler<MapPack> {
 
 		} catch (Exception e) {
 			incoming.log.log(IndexLog.EntryType.CONTINUE, "Failed to read map properties", e);
+		} finally {
+			// each map is only read once, so don't hold every map in the pack open until we're done
+			map.release();
 		}
 
 		listConsumer.accept(images);
@@ -156,8 +158,4 @@ public class MapPackIndexHandler implements IndexHandler<MapPack> {
 		return IndexUtils.UNKNOWN;
 	}
 
-	private Package map(Incoming.IncomingFile file) {
-		return new Package(new PackageReader(file.asChannel()));
-	}
-
 }
\ No newline at end of file
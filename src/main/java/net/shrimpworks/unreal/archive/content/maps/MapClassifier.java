@@ -17,7 +17,7 @@ public class MapClassifier implements Classifier {
 
 		// for now, we specifically disallow UT3, since we don't understand its package structure (> version 500?)
 		for (Incoming.IncomingFile map : maps) {
-			if (Util.extension(map.fileName()).equalsIgnoreCase("ut3")) return false;
+			if (map.extension.equals("ut3")) return false;
 		}
 
 		// a map definitely probably won't have any associated .int files
@@ -18,7 +18,6 @@ import net.shrimpworks.unreal.archive.content.IndexLog;
 import net.shrimpworks.unreal.archive.content.IndexResult;
 import net.shrimpworks.unreal.archive.content.IndexUtils;
 import net.shrimpworks.unreal.packages.Package;
-import net.shrimpworks.unreal.packages.PackageReader;
 import net.shrimpworks.unreal.packages.entities.ExportedObject;
 import net.shrimpworks.unreal.packages.entities.objects.Object;
 import net.shrimpworks.unreal.packages.entities.properties.IntegerProperty;
@@ -60,7 +59,8 @@ public class MapIndexHandler implements IndexHandler<Map> {
 
 		Set<IndexResult.NewAttachment> attachments = new HashSet<>();
 
-		try (Package map = map(baseMap)) {
+		try {
+			Package map = baseMap.asPackage();
 			if (!gameOverride) {
 				// attempt to detect Unreal maps by possible release date
 				if (map.version < 68 || (m.releaseDate != null && m.releaseDate.compareTo(IndexUtils.RELEASE_UT99) < 0)) m.game = "Unreal";
@@ -150,10 +150,6 @@ public class MapIndexHandler implements IndexHandler<Map> {
 		return shortestMap;
 	}
 
-	private Package map(Incoming.IncomingFile mapFile) {
-		return new Package(new PackageReader(mapFile.asChannel()));
-	}
-
 	private String mapName(Incoming.IncomingFile mapFile) {
 		return Util.plainName(mapFile.fileName());
 	}
@@ -195,10 +191,10 @@ public class MapIndexHandler implements IndexHandler<Map> {
 		if (incoming.submission.override.get("game", null) != null) return incoming.submission.override.get("game", "Unreal Tournament");
 
 		for (Incoming.IncomingFile f : incoming.files(Incoming.FileType.MAP)) {
-			if (f.fileName().toLowerCase().endsWith(".unr")) return "Unreal Tournament";
-			if (f.fileName().toLowerCase().endsWith(".ut2")) return "Unreal Tournament 2004";
-			if (f.fileName().toLowerCase().endsWith(".ut3")) return "Unreal Tournament 3";
-			if (f.fileName().toLowerCase().endsWith(".un2")) return "Unreal 2";
+			if (f.extension.equals("unr")) return "Unreal Tournament";
+			if (f.extension.equals("ut2")) return "Unreal Tournament 2004";
+			if (f.extension.equals("ut3")) return "Unreal Tournament 3";
+			if (f.extension.equals("un2")) return "Unreal 2";
 		}
 
 		return IndexUtils.UNKNOWN;
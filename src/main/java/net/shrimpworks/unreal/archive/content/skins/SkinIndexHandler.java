@@ -175,7 +175,7 @@ public class SkinIndexHandler implements IndexHandler<Skin> {
 		return incoming.files(Incoming.FileType.PLAYER).stream()
 					   .map(f -> {
 						   try {
-							   return new IntFile(f.asChannel());
+							   return f.asIntFile();
 						   } catch (IOException e) {
 							   incoming.log.log(IndexLog.EntryType.CONTINUE, "Couldn't load UPL file " + f.fileName(), e);
 							   return null;
@@ -13,8 +13,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import net.shrimpworks.unreal.archive.Util;
@@ -110,6 +114,9 @@ public class ManagedContentManager {
 												  }))
 												  .collect(Collectors.toSet());
 
+		// start uploads of all unsynced files up-front, the store limits how many are in progress at once
+		Map<ManagedContentHolder, Managed> clones = new LinkedHashMap<>();
+		Map<ManagedContentHolder, List<CompletableFuture<String>>> uploads = new LinkedHashMap<>();
 		toSync.forEach(m -> {
 			Managed clone;
 			try {
@@ -118,36 +125,45 @@ public class ManagedContentManager {
 				throw new IllegalStateException("Cannot clone managed content " + m.managed);
 			}
 
-			boolean[] success = { false };
-
-			clone.downloads.stream().filter(d -> !d.synced).forEach(d -> {
+			clones.put(m, clone);
+			uploads.put(m, clone.downloads.stream().filter(d -> !d.synced).map(d -> {
 				Path f = m.path.resolve(d.localFile);
 				if (!Files.exists(f)) throw new IllegalArgumentException(String.format("Local file %s not found!", d.localFile));
 
+				return contentStore.storeAsync(f, String.join("/", remotePath(m.managed), f.getFileName().toString()));
+			}).collect(Collectors.toList()));
+		});
+
+		// as each item's files complete, its definition is updated once
+		clones.forEach((m, clone) -> {
+			List<Managed.ManagedFile> files = clone.downloads.stream().filter(d -> !d.synced).collect(Collectors.toList());
+			List<CompletableFuture<String>> pending = uploads.get(m);
+
+			boolean success = false;
+			for (int i = 0; i < files.size(); i++) {
+				Managed.ManagedFile d = files.get(i);
+				try {
+					String u = pending.get(i).join();
+					if (!d.downloads.contains(u)) d.downloads.add(u);
+					d.fileSize = Files.size(m.path.resolve(d.localFile));
+					d.synced = true;
+					success = true;
+				} catch (CompletionException | IOException e) {
+					throw new RuntimeException(String.format("Failed to sync file %s: %s%n", d.localFile,
+															 e instanceof CompletionException ? e.getCause().toString() : e.toString()));
+				}
+			}
+
+			if (success) {
 				try {
-					contentStore.store(f, String.join("/", remotePath(m.managed), f.getFileName().toString()), u -> {
-						try {
-							if (!d.downloads.contains(u)) d.downloads.add(u);
-							d.fileSize = Files.size(f);
-							d.synced = true;
-
-							// replace existing with updated
-							Files.write(m.path, YAML.toString(clone).getBytes(StandardCharsets.UTF_8),
-										StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-
-							success[0] = true;
-						} catch (IOException e) {
-							throw new RuntimeException(String.format("Failed to update managed content definition %s: %s%n",
-																	 m.path, e.toString()));
-						}
-
-					});
+					// replace existing with updated
+					Files.write(m.path, YAML.toString(clone).getBytes(StandardCharsets.UTF_8),
+								StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
 				} catch (IOException e) {
-					throw new RuntimeException(String.format("Failed to sync file %s: %s%n", d.localFile, e.toString()));
+					throw new RuntimeException(String.format("Failed to update managed content definition %s: %s%n",
+															 m.path, e.toString()));
 				}
-			});
 
-			if (success[0]) {
 				content.remove(m.managed);
 				content.put(clone, new ManagedContentHolder(m.path, clone));
 				synced.add(clone);
@@ -3,12 +3,20 @@ package net.shrimpworks.unreal.archive.mirror;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 import net.shrimpworks.unreal.archive.Util;
 import net.shrimpworks.unreal.archive.content.Content;
@@ -18,12 +26,30 @@ import net.shrimpworks.unreal.archive.content.ContentManager;
  * Simple multi-threaded mirror/downloader implementation.
  * <p>
  * Logging currently implemented via stderr, with a simple callback
- * to monitor progress (overall file counts, not individual file
- * progress).
+ * to monitor progress, both of overall file counts, and bytes
+ * transferred.
+ * <p>
+ * Content is scheduled by {@link MirrorScheduler}, which limits the number
+ * of concurrent downloads from each host, and starts the largest files
+ * first.
+ * <p>
+ * Files are downloaded to a partial file first, which is resumed by later
+ * runs if a download is interrupted, and only moved into place once its
+ * SHA-1 hash matches the content's hash.
+ * <p>
+ * Verified files are recorded in a {@link MirrorManifest}, and content
+ * which has not changed since it was recorded, and for which a file of the
+ * recorded size is still present, is not checked again. Content
+ * which has moved within the archive is moved within the mirror rather than
+ * downloaded again.
  */
 public class MirrorClient implements Consumer<MirrorClient.Downloader> {
 
-	private final Deque<Content> content;
+	private static final long PROGRESS_INTERVAL = 1000;
+
+	private final MirrorScheduler scheduler;
+	private final MirrorManifest manifest;
+	private final Set<String> current;
 	private final Path output;
 	private final int concurrency;
 	private final ExecutorService executor;
@@ -31,41 +57,158 @@ public class MirrorClient implements Consumer<MirrorClient.Downloader> {
 	private final Progress progress;
 
 	private final long totalCount;
+	private final long totalBytes;
+	private final long unchanged;
 	private final CountDownLatch counter;
+	private final AtomicLong transferred;
 
 	private volatile Thread mirrorThread;
 
 	public MirrorClient(ContentManager content, Path output, int concurrency, Progress progress) {
-		this.content = new ArrayDeque<>(content.search(null, null, null, null));
+		this(content, output, concurrency, concurrency, progress);
+	}
+
+	/**
+	 * Create a new mirror client.
+	 *
+	 * @param content         content to mirror
+	 * @param output          directory to mirror content to
+	 * @param concurrency     total number of concurrent downloads
+	 * @param hostConcurrency number of concurrent downloads from any single
+	 *                        host
+	 * @param progress        progress callback
+	 */
+	public MirrorClient(ContentManager content, Path output, int concurrency, int hostConcurrency, Progress progress) {
+		this(content, output, concurrency, hostConcurrency, MirrorManifest.load(null), progress);
+	}
+
+	/**
+	 * Create a new mirror client.
+	 * <p>
+	 * Only content which is not recorded as verified in the manifest, or
+	 * has changed since it was recorded, will be mirrored.
+	 *
+	 * @param content         content to mirror
+	 * @param output          directory to mirror content to
+	 * @param concurrency     total number of concurrent downloads
+	 * @param hostConcurrency number of concurrent downloads from any single
+	 *                        host
+	 * @param manifest        record of previously mirrored content
+	 * @param progress        progress callback
+	 */
+	public MirrorClient(ContentManager content, Path output, int concurrency, int hostConcurrency, MirrorManifest manifest,
+						Progress progress) {
+		Collection<Content> all = content.search(null, null, null, null);
+		List<Content> pending = all.stream()
+								   .filter(c -> !manifest.verified(c.hash, output, relativePath(output, c), c.fileSize))
+								   .collect(Collectors.toList());
+
+		this.scheduler = new MirrorScheduler(pending, hostConcurrency);
+		this.manifest = manifest;
+		this.current = all.stream().map(c -> c.hash).collect(Collectors.toSet());
 		this.output = output;
 		this.concurrency = concurrency;
 
 		this.progress = progress;
 
-		this.totalCount = content.size();
-		this.counter = new CountDownLatch(content.size());
+		this.totalCount = pending.size();
+		this.totalBytes = pending.stream().mapToLong(c -> c.fileSize).sum();
+		this.unchanged = all.size() - pending.size();
+		this.counter = new CountDownLatch(pending.size());
+		this.transferred = new AtomicLong();
 
-		this.executor = Executors.newFixedThreadPool(concurrency);
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+			Thread t = new Thread(r, "mirror-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 	}
 
 	public boolean mirror() {
 		this.mirrorThread = Thread.currentThread();
 
 		try {
-			// kick off the initial tasks, subsequent tasks will schedule as they complete
-			for (int i = 0; i < concurrency; i++) next();
+			// workers take content from the scheduler until there is none left
+			for (int i = 0; i < concurrency; i++) executor.submit(this::work);
+
+			// wait for all downloads to complete, reporting throughput while waiting
+			long lastTime = System.nanoTime();
+			long lastBytes = 0;
+			boolean complete = false;
+			while (!complete) {
+				complete = counter.await(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
 
-			// wait for all downloads to complete
-			counter.await();
+				long now = System.nanoTime();
+				long bytes = transferred.get();
+				double elapsed = (now - lastTime) / 1_000_000_000d;
+				progress.transferred(totalBytes, bytes, elapsed > 0 ? (bytes - lastBytes) / elapsed : 0);
+				lastTime = now;
+				lastBytes = bytes;
+			}
 
 			return true;
 		} catch (InterruptedException e) {
 			return false;
 		} finally {
 			this.mirrorThread = null;
+
+			// record progress, even if incomplete
+			try {
+				manifest.save();
+			} catch (IOException e) {
+				System.err.printf("%nFailed to write mirror manifest: %s%n", e);
+			}
 		}
 	}
 
+	/**
+	 * Delete mirrored files belonging to content which is no longer part of
+	 * the archive.
+	 *
+	 * @return number of files removed
+	 * @throws IOException failed to write the updated manifest
+	 */
+	public int prune() throws IOException {
+		final Path root = output.toAbsolutePath().normalize();
+		int removed = 0;
+		for (MirrorManifest.Entry orphan : manifest.orphans(current)) {
+			Path file = root.resolve(orphan.path).normalize();
+			if (!file.startsWith(root)) {
+				// never delete anything outside of the mirror, however the manifest came to reference it
+				System.err.printf("Not removing %s, which is outside of the mirror%n", orphan.path);
+				manifest.remove(orphan.hash);
+				continue;
+			}
+
+			try {
+				Files.deleteIfExists(file.resolveSibling(file.getFileName() + Downloader.PARTIAL_SUFFIX));
+				if (Files.deleteIfExists(file)) removed++;
+				manifest.remove(orphan.hash);
+			} catch (IOException e) {
+				System.err.printf("Failed to remove %s: %s%n", file, e);
+			}
+		}
+		manifest.save();
+		return removed;
+	}
+
+	/**
+	 * Get the number of items which were skipped, since they were unchanged
+	 * since a previous mirror run.
+	 *
+	 * @return unchanged item count
+	 */
+	public long unchanged() {
+		return unchanged;
+	}
+
+	private static String relativePath(Path output, Content content) {
+		return output.relativize(content.contentPath(output).resolve(content.originalFilename))
+					 .toString()
+					 .replace(output.getFileSystem().getSeparator(), "/");
+	}
+
 	public void cancel() {
 		executor.shutdownNow();
 
@@ -77,63 +220,228 @@ public class MirrorClient implements Consumer<MirrorClient.Downloader> {
 
 	@Override
 	public void accept(Downloader downloader) {
-		progress.progress(totalCount, MirrorClient.this.content.size(), downloader.content);
+		if (downloader.verified) {
+			manifest.record(downloader.content.hash, relativePath(output, downloader.content), downloader.content.fileSize);
+		}
+
+		scheduler.release(downloader.host);
+
+		progress.progress(totalCount, scheduler.remaining(), downloader.content);
 
 		// finally, countdown
 		counter.countDown();
+	}
 
-		// kick off next one
-		next();
+	private void work() {
+		try {
+			Content c;
+			while ((c = scheduler.take()) != null) {
+				try {
+					new Downloader(c, output, this, transferred::addAndGet, previous(c), scheduler).run();
+				} catch (RuntimeException e) {
+					System.err.printf("%nFailed to download content %s: %s%n", c.contentPath(output), e.toString());
+					scheduler.done(c);
+					counter.countDown();
+				}
+			}
+		} catch (InterruptedException e) {
+			// cancelled
+		}
 	}
 
-	private void next() {
-		final Content c = MirrorClient.this.content.poll();
-		if (c != null) executor.submit(new Downloader(c, output, this));
+	/**
+	 * Find the location content was previously mirrored to, if it has since
+	 * moved.
+	 */
+	private Path previous(Content content) {
+		MirrorManifest.Entry entry = manifest.get(content.hash);
+		if (entry == null || !entry.verified || entry.path.equals(relativePath(output, content))) return null;
+		return output.resolve(entry.path);
 	}
 
 	@FunctionalInterface
 	public interface Progress {
 
 		public void progress(long total, long remaining, Content last);
+
+		/**
+		 * Report the number of bytes transferred so far, called periodically
+		 * while the mirror is running.
+		 *
+		 * @param totalBytes       total size of all content
+		 * @param transferredBytes bytes downloaded so far
+		 * @param bytesPerSecond   current download rate
+		 */
+		public default void transferred(long totalBytes, long transferredBytes, double bytesPerSecond) {
+			// no-op
+		}
 	}
 
 	public static class Downloader implements Runnable {
 
+		static final String PARTIAL_SUFFIX = ".part";
+
 		public final Content content;
 		private final Path output;
 		private final Consumer<Downloader> done;
+		private final LongConsumer received;
+		private final Path previous;
+		private final MirrorScheduler scheduler;
 		public final Path destination;
+		private final Path partial;
+
+		// the host for which download capacity is currently held from the scheduler, if any
+		private volatile String host;
+
+		// set once the destination file is known to match the content hash
+		public volatile boolean verified;
 
 		public Downloader(Content c, Path output, Consumer<Downloader> done) {
+			this(c, output, done, null, null);
+		}
+
+		/**
+		 * Create a new downloader.
+		 *
+		 * @param c        content to download
+		 * @param output   mirror root directory
+		 * @param done     called once the download is complete
+		 * @param received receives the number of bytes downloaded, may be null
+		 * @param previous a previously verified copy of the content at another
+		 *                 location, which will be moved rather than downloaded,
+		 *                 may be null
+		 */
+		public Downloader(Content c, Path output, Consumer<Downloader> done, LongConsumer received, Path previous) {
+			this(c, output, done, received, previous, null);
+		}
+
+		/**
+		 * Create a new downloader for content taken from a scheduler, which
+		 * limits the number of downloads from each host.
+		 * <p>
+		 * Capacity for the content's main download host is expected to be held
+		 * already, and is exchanged for capacity on other hosts if downloads
+		 * from them are needed. The host held once complete is available via
+		 * the <code>done</code> callback, and must be released by it.
+		 */
+		Downloader(Content c, Path output, Consumer<Downloader> done, LongConsumer received, Path previous,
+				   MirrorScheduler scheduler) {
 			this.content = c;
 			this.output = output;
 			this.done = done;
+			this.received = received;
+			this.previous = previous;
+			this.scheduler = scheduler;
+			this.host = scheduler == null ? null : MirrorScheduler.host(c);
 
 			try {
 				this.destination = Files.createDirectories(content.contentPath(output)).resolve(content.originalFilename);
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to create directories for content " + content.originalFilename);
 			}
+			this.partial = destination.resolveSibling(destination.getFileName() + PARTIAL_SUFFIX);
 		}
 
 		@Override
 		public void run() {
 			try {
-				// only consider "main" URLs
-				// TODO if main 404s, try others
-				Content.Download dl = content.downloads.stream().filter(d -> d.main).findFirst().orElse(null);
-				if (dl == null) return;
+				// content has moved since it was last mirrored
+				if (previous != null && Files.exists(previous) && !Files.exists(destination)) {
+					Files.move(previous, destination);
+					verified = true;
+					return;
+				}
 
 				// file already downloaded
-				if (Files.exists(destination) && Files.size(destination) == content.fileSize) return;
+				if (Files.exists(destination) && Files.size(destination) == content.fileSize
+					&& Util.hash(destination).equalsIgnoreCase(content.hash)) {
+					verified = true;
+					return;
+				}
+
+				// the "main" download is preferred, others are tried in order if it fails; repacks will never match the hash
+				List<Content.Download> downloads = content.downloads.stream()
+																   .filter(d -> d.state != Content.DownloadState.DELETED)
+																   .filter(d -> !d.repack)
+																   .sorted(Comparator.comparing(d -> !d.main))
+																   .collect(Collectors.toList());
+				if (downloads.isEmpty()) return;
 
-				// download the stuff, hopefully
-				Util.downloadTo(dl.url, destination);
+				IOException failed = null;
+				for (Content.Download dl : downloads) {
+					try {
+						// a partial file left by a failed download from another URL is not resumed from this one
+						if (failed != null) Files.deleteIfExists(partial);
+						hostFor(dl);
+						download(dl);
+						verified = true;
+						return;
+					} catch (IOException e) {
+						if (failed == null) failed = e;
+						else failed.addSuppressed(e);
+					}
+				}
+				throw failed;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			} catch (Throwable t) {
 				System.err.printf("%nFailed to download content %s: %s%n", content.contentPath(output), t.toString());
 			} finally {
 				if (done != null) done.accept(this);
 			}
 		}
+
+		/**
+		 * Hold capacity for the host of a download, rather than the host
+		 * currently held, so downloads from any URL count towards their own
+		 * host's limit.
+		 * <p>
+		 * The current host is released before waiting for the next, so workers
+		 * falling back to each other's hosts cannot wait on each other forever.
+		 */
+		private void hostFor(Content.Download dl) throws InterruptedException {
+			if (scheduler == null) return;
+
+			String next = MirrorScheduler.host(dl.url);
+			if (next.equals(host)) return;
+
+			if (host != null) scheduler.release(host);
+			host = null;
+			scheduler.acquire(next);
+			host = next;
+		}
+
+		/**
+		 * Download to a partial file alongside the destination, resuming a
+		 * previous attempt if one exists, and move it into place once its
+		 * hash has been verified.
+		 * <p>
+		 * If a resumed download fails verification, the partial file may have
+		 * been bad, so the whole file is downloaded again before giving up.
+		 */
+		private void download(Content.Download dl) throws IOException {
+			// a partial file larger than the expected size cannot be resumed
+			if (Files.exists(partial) && Files.size(partial) > content.fileSize) Files.delete(partial);
+
+			final boolean resumed = Files.exists(partial) && Files.size(partial) > 0;
+			if (downloadAndVerify(dl)) return;
+
+			// the previous partial content may have been bad, so try again from the start
+			if (resumed && downloadAndVerify(dl)) return;
+
+			throw new IOException(String.format("Downloaded file %s does not match expected hash %s", dl.url, content.hash));
+		}
+
+		private boolean downloadAndVerify(Content.Download dl) throws IOException {
+			Util.resumeDownloadTo(dl.url, partial, received);
+
+			if (Util.hash(partial).equalsIgnoreCase(content.hash)) {
+				Files.move(partial, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				return true;
+			}
+
+			Files.delete(partial);
+			return false;
+		}
 	}
 }
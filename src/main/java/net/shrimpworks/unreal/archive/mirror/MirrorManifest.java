@@ -0,0 +1,194 @@
+package net.shrimpworks.unreal.archive.mirror;
+
+import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import net.shrimpworks.unreal.archive.Binary;
+
+/**
+ * A record of the files written by previous mirror runs, used to skip
+ * content which has already been downloaded and verified.
+ * <p>
+ * Entries are keyed by content hash, and record the path of the file within
+ * the mirror, its size, and whether its hash has been verified. Content
+ * which has since been removed from the archive remains in the manifest
+ * until it is pruned.
+ */
+public class MirrorManifest {
+
+	private static final int VERSION = 1;
+
+	private final Path path;
+	private final Map<String, Entry> entries;
+
+	private MirrorManifest(Path path, Map<String, Entry> entries) {
+		this.path = path;
+		this.entries = entries;
+	}
+
+	/**
+	 * Load the manifest of previous mirror runs.
+	 * <p>
+	 * If the manifest does not exist, or cannot be read, an empty manifest
+	 * is returned, and all content will be considered new.
+	 *
+	 * @param path manifest file location, or null to keep the manifest in
+	 *             memory only
+	 * @return a manifest
+	 */
+	public static MirrorManifest load(Path path) {
+		final Map<String, Entry> entries = new ConcurrentHashMap<>();
+		if (path != null && Files.isRegularFile(path)) {
+			try {
+				Snapshot snapshot = Binary.fromFile(path, Snapshot.class);
+				if (snapshot.version == VERSION && snapshot.entries != null) {
+					snapshot.entries.forEach(e -> entries.put(e.hash, e));
+				}
+			} catch (IOException e) {
+				System.err.printf("Failed to read mirror manifest %s, all content will be checked: %s%n", path, e);
+			}
+		}
+		return new MirrorManifest(path, entries);
+	}
+
+	/**
+	 * Determine whether content has already been mirrored to the given path.
+	 *
+	 * @param hash content hash
+	 * @param path path of the content file, relative to the mirror root
+	 * @param size expected file size
+	 * @return true if the file was previously downloaded and verified
+	 */
+	public boolean verified(String hash, String path, long size) {
+		Entry entry = entries.get(hash);
+		return entry != null && entry.verified && entry.size == size && entry.path.equals(path);
+	}
+
+	/**
+	 * Determine whether content has already been mirrored to the given path,
+	 * and the mirrored file is still present with the expected size.
+	 * <p>
+	 * The file's content is not hashed again, so this only guards against
+	 * files which have been removed or truncated since they were recorded.
+	 *
+	 * @param hash content hash
+	 * @param root mirror root directory
+	 * @param path path of the content file, relative to the mirror root
+	 * @param size expected file size
+	 * @return true if the file was previously downloaded and verified, and
+	 * is still present
+	 */
+	public boolean verified(String hash, Path root, String path, long size) {
+		if (!verified(hash, path, size)) return false;
+		try {
+			return Files.size(root.resolve(path)) == size;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get the manifest entry for content.
+	 *
+	 * @param hash content hash
+	 * @return the entry, or null if the content has not been mirrored
+	 */
+	public Entry get(String hash) {
+		return entries.get(hash);
+	}
+
+	/**
+	 * Record that content has been downloaded and verified.
+	 *
+	 * @param hash content hash
+	 * @param path path of the content file, relative to the mirror root
+	 * @param size file size
+	 */
+	public void record(String hash, String path, long size) {
+		entries.put(hash, new Entry(hash, path, size, true));
+	}
+
+	/**
+	 * Find entries for content which is no longer part of the archive.
+	 *
+	 * @param current hashes of all current content
+	 * @return entries which do not belong to current content
+	 */
+	public Collection<Entry> orphans(Set<String> current) {
+		return entries.values().stream()
+					  .filter(e -> !current.contains(e.hash))
+					  .collect(Collectors.toList());
+	}
+
+	public void remove(String hash) {
+		entries.remove(hash);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Write the manifest.
+	 *
+	 * @throws IOException failed to write the manifest
+	 */
+	public void save() throws IOException {
+		if (path == null) return;
+		Binary.toFile(new Snapshot(VERSION, new ArrayList<>(entries.values())), path);
+	}
+
+	public static class Entry {
+
+		public final String hash;
+		public final String path;
+		public final long size;
+		public final boolean verified;
+
+		@ConstructorProperties({ "hash", "path", "size", "verified" })
+		public Entry(String hash, String path, long size, boolean verified) {
+			this.hash = hash;
+			this.path = path;
+			this.size = size;
+			this.verified = verified;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Entry entry = (Entry)o;
+			return size == entry.size
+				   && verified == entry.verified
+				   && Objects.equals(hash, entry.hash)
+				   && Objects.equals(path, entry.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(hash, path, size, verified);
+		}
+	}
+
+	public static class Snapshot {
+
+		public final int version;
+		public final List<Entry> entries;
+
+		@ConstructorProperties({ "version", "entries" })
+		public Snapshot(int version, List<Entry> entries) {
+			this.version = version;
+			this.entries = entries;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package net.shrimpworks.unreal.archive.mirror;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import net.shrimpworks.unreal.archive.content.Content;
+
+/**
+ * Hands out content to be mirrored to any number of worker threads,
+ * limiting the number of downloads from each host in progress at once.
+ * <p>
+ * Content is grouped by the host of its main download, and within each host
+ * ordered largest first, so the longest downloads start early rather than
+ * holding up the end of a run. Workers are not bound to a host, an idle
+ * worker takes the largest remaining item from any host which has capacity
+ * available.
+ * <p>
+ * Downloads from hosts other than the main download's host, such as
+ * fallbacks when the main download fails, are limited by the same per-host
+ * capacity, via {@link #acquire(String)} and {@link #release(String)}.
+ */
+class MirrorScheduler {
+
+	private static final String UNKNOWN_HOST = "";
+
+	private final int hostConcurrency;
+	private final Map<String, Host> hosts;
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+
+	private int remaining;
+
+	/**
+	 * Create a new scheduler.
+	 *
+	 * @param content         content to be mirrored
+	 * @param hostConcurrency maximum number of downloads from a single host
+	 *                        in progress at one time
+	 */
+	MirrorScheduler(Collection<Content> content, int hostConcurrency) {
+		this.hostConcurrency = Math.max(1, hostConcurrency);
+		this.hosts = new HashMap<>();
+
+		content.stream()
+			   .sorted(Comparator.comparingLong((Content c) -> c.fileSize).reversed())
+			   .collect(Collectors.groupingBy(MirrorScheduler::host))
+			   .forEach((host, items) -> hosts.put(host, new Host(items)));
+
+		this.remaining = content.size();
+	}
+
+	/**
+	 * Take the next item to mirror, waiting until a host has capacity
+	 * available if necessary.
+	 * <p>
+	 * The caller must call {@link #done(Content)} once it has finished with
+	 * the item.
+	 *
+	 * @return the next item, or null if there is nothing left to mirror
+	 * @throws InterruptedException interrupted while waiting
+	 */
+	Content take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (remaining > 0) {
+				Host best = null;
+				for (Host h : hosts.values()) {
+					if (h.active >= hostConcurrency || h.queue.isEmpty()) continue;
+					if (best == null || h.queue.peek().fileSize > best.queue.peek().fileSize) best = h;
+				}
+
+				if (best != null) {
+					best.active++;
+					remaining--;
+					return best.queue.poll();
+				}
+
+				available.await();
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Release the capacity used by an item taken from this scheduler.
+	 *
+	 * @param content the item which is finished
+	 */
+	void done(Content content) {
+		release(host(content));
+	}
+
+	/**
+	 * Take capacity from a host, waiting until it has some available if
+	 * necessary.
+	 * <p>
+	 * The caller must call {@link #release(String)} once it has finished with
+	 * the host.
+	 *
+	 * @param host host name, see {@link #host(String)}
+	 * @throws InterruptedException interrupted while waiting
+	 */
+	void acquire(String host) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			Host h = hosts.computeIfAbsent(host, k -> new Host(List.of()));
+			while (h.active >= hostConcurrency) available.await();
+			h.active++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Release capacity taken from a host, either for an item taken via
+	 * {@link #take()}, or via {@link #acquire(String)}.
+	 *
+	 * @param host host name, see {@link #host(String)}
+	 */
+	void release(String host) {
+		lock.lock();
+		try {
+			Host h = hosts.get(host);
+			if (h != null) h.active--;
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the number of items which have not yet been taken.
+	 *
+	 * @return remaining items
+	 */
+	int remaining() {
+		lock.lock();
+		try {
+			return remaining;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	static String host(Content content) {
+		Content.Download dl = content.downloads.stream()
+											   .filter(d -> d.main)
+											   .findFirst()
+											   .orElse(content.downloads.isEmpty() ? null : content.downloads.get(0));
+		if (dl == null) return UNKNOWN_HOST;
+
+		return host(dl.url);
+	}
+
+	static String host(String url) {
+		try {
+			String host = URI.create(url).getHost();
+			return host == null ? UNKNOWN_HOST : host.toLowerCase();
+		} catch (IllegalArgumentException e) {
+			return UNKNOWN_HOST;
+		}
+	}
+
+	private static class Host {
+
+		private final Deque<Content> queue;
+		private int active;
+
+		private Host(Collection<Content> items) {
+			this.queue = new ArrayDeque<>(items);
+		}
+	}
+}
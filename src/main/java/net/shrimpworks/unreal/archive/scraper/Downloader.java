@@ -83,7 +83,7 @@ public class Downloader {
 					Path ymlOutFile = dir.resolve(url.name);
 					Path outFile = dir.resolve(url.name);
 
-					String disposition = http.getHeaderField("Content-Disposition");
+					String disposition = http.headers().firstValue("Content-Disposition").orElse(null);
 					if (disposition != null) {
 						Matcher matcher = CONTENT_DISPOSITION_FILENAME.matcher(disposition);
 						if (matcher.matches()) {
@@ -93,7 +93,7 @@ public class Downloader {
 					}
 
 					Files.createDirectories(outFile.getParent());
-					Files.copy(http.getInputStream(), outFile);
+					Files.copy(http.body(), outFile);
 
 					Submission sub = new Submission(outFile, url.pageUrl);
 					Files.write(ymlOutFile, YAML.toString(sub).getBytes(StandardCharsets.UTF_8),
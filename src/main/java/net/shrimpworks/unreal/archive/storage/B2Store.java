@@ -4,6 +4,13 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -15,6 +22,7 @@ import com.backblaze.b2.client.structures.B2AccountAuthorization;
 import com.backblaze.b2.client.structures.B2Bucket;
 import com.backblaze.b2.client.structures.B2FileVersion;
 import com.backblaze.b2.client.structures.B2ListBucketsRequest;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
 import com.backblaze.b2.client.structures.B2UploadFileRequest;
 import com.backblaze.b2.client.webApiHttpClient.B2StorageHttpClientBuilder;
 
@@ -24,13 +32,22 @@ import net.shrimpworks.unreal.archive.Util;
 /**
  * Backblaze B2 Cloud storage implementation.
  * <p>
- * This implementation only supports "small" files of up to 5GB.
+ * Files larger than twice the account's recommended part size are uploaded
+ * as B2 "large files", with several parts uploaded concurrently.
+ * <p>
+ * To avoid checking whether each file already exists individually, the
+ * names of all files directly within a "directory" prefix are listed and
+ * remembered when the first file with that prefix is stored. Files not
+ * found in the listing are still checked individually before uploading.
  */
 public class B2Store implements DataStore {
 
-	private static final long MAX_SIZE = 5L * 1000L * 1000L * 1000L; // 5GB (docs say GB, not GiB)
+	private static final long MAX_SMALL_SIZE = 5L * 1000L * 1000L * 1000L; // 5GB (docs say GB, not GiB)
 	private static final String USER_AGENT = "unreal-archive/1.0";
 
+	private static final int DEFAULT_UPLOAD_THREADS = 4;
+	private static final int LIST_PAGE_SIZE = 1000;
+
 	private static final String DOWNLOAD_URL = "%s/file/%s/%s";
 	private static final Pattern DOWNLOAD_MATCHER = Pattern.compile(".+?/file/([^/]+)/(.+)");
 
@@ -53,50 +70,73 @@ public class B2Store implements DataStore {
 				throw new IllegalArgumentException("Missing bucket for B2 store; --b2-bucket or B2_BUCKET");
 			}
 
-			return new B2Store(accId, key, bucket);
+			int uploadThreads = Integer.parseInt(cli.option("b2-upload-threads", String.valueOf(DEFAULT_UPLOAD_THREADS)));
+
+			return new B2Store(accId, key, bucket, uploadThreads, Transfers.fromCli(type, cli));
 		}
 	}
 
 	private final B2StorageClient client;
 	private final String bucket;
+	private final ExecutorService uploadPool;
+	private final Transfers transfers;
+
+	// names of files known to exist, by "directory" prefix
+	private final Map<String, Set<String>> existing;
 
 	private volatile B2AccountAuthorization account;
 	private volatile B2Bucket bucketInfo;
 
 	B2Store(String keyId, String appKey, String bucket) {
+		this(keyId, appKey, bucket, DEFAULT_UPLOAD_THREADS, Transfers.defaults());
+	}
+
+	B2Store(String keyId, String appKey, String bucket, int uploadThreads, Transfers transfers) {
 		this.client = B2StorageHttpClientBuilder.builder(keyId, appKey, USER_AGENT).build();
 		this.bucket = bucket;
+		this.transfers = transfers;
+		this.existing = new ConcurrentHashMap<>();
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.uploadPool = Executors.newFixedThreadPool(Math.max(1, uploadThreads), r -> {
+			Thread t = new Thread(r, "b2-upload-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 	}
 
 	@Override
 	public void close() {
+		this.transfers.close();
+		this.uploadPool.shutdownNow();
 		this.client.close();
 	}
 
 	@Override
 	public void store(Path path, String name, Consumer<String> stored) throws IOException {
-		if (Files.size(path) > MAX_SIZE) throw new IllegalArgumentException(path + " exceeds maximum size " + MAX_SIZE);
-
 		try {
 			checkAccount();
 
 			// first, check if file exists; if it does, just return existing file
-			try {
-				B2FileVersion fileInfo = client.getFileInfoByName(bucketInfo.getBucketName(), name);
+			if (exists(name)) {
 				stored.accept(Util.toUriString(
-						String.format(DOWNLOAD_URL, account.getDownloadUrl(), bucketInfo.getBucketName(), fileInfo.getFileName())
+						String.format(DOWNLOAD_URL, account.getDownloadUrl(), bucketInfo.getBucketName(), name)
 				));
 				return;
-			} catch (B2Exception ex) {
-				if (ex.getStatus() != 404) {
-					throw new IOException("File existence check failed", ex);
-				}
 			}
 
-			final B2FileVersion upload = this.client.uploadSmallFile(
-					B2UploadFileRequest.builder(bucket, name, Util.mimeType(Util.extension(path)),
-												B2FileContentSource.build(path.toFile())).build()
-			);
+			final long size = Files.size(path);
+			final B2UploadFileRequest request = B2UploadFileRequest.builder(bucket, name, Util.mimeType(Util.extension(path)),
+																			B2FileContentSource.build(path.toFile())).build();
+
+			final B2FileVersion upload;
+			if (size > account.getRecommendedPartSize() * 2 || size > MAX_SMALL_SIZE) {
+				upload = this.client.uploadLargeFile(request, uploadPool);
+			} else {
+				upload = this.client.uploadSmallFile(request);
+			}
+
+			existing.computeIfAbsent(prefix(name), p -> ConcurrentHashMap.newKeySet()).add(upload.getFileName());
 
 			stored.accept(Util.toUriString(
 					String.format(DOWNLOAD_URL, account.getDownloadUrl(), bucketInfo.getBucketName(), upload.getFileName())
@@ -106,6 +146,58 @@ public class B2Store implements DataStore {
 		}
 	}
 
+	@Override
+	public CompletableFuture<String> storeAsync(Path path, String name) {
+		return transfers.submit(() -> {
+			String[] url = { null };
+			store(path, name, u -> url[0] = u);
+			return url[0];
+		});
+	}
+
+	/**
+	 * Check whether a file exists, using a listing of all files with the
+	 * same prefix, which is requested the first time that prefix is seen.
+	 * <p>
+	 * Files not in the listing are checked individually, since they may
+	 * have been stored by another process since the listing was requested.
+	 */
+	private boolean exists(String name) throws IOException {
+		final String prefix = prefix(name);
+
+		Set<String> names = existing.get(prefix);
+		if (names == null) {
+			final Set<String> listed = ConcurrentHashMap.newKeySet();
+			try {
+				client.fileNames(B2ListFileNamesRequest.builder(bucket)
+													   .setPrefix(prefix)
+													   .setDelimiter("/")
+													   .setMaxFileCount(LIST_PAGE_SIZE)
+													   .build())
+					  .forEach(f -> listed.add(f.getFileName()));
+			} catch (B2Exception e) {
+				throw new IOException("File existence check failed", e);
+			}
+
+			names = existing.putIfAbsent(prefix, listed);
+			if (names == null) names = listed;
+		}
+
+		if (names.contains(name)) return true;
+
+		try {
+			names.add(client.getFileInfoByName(bucketInfo.getBucketName(), name).getFileName());
+			return true;
+		} catch (B2Exception e) {
+			if (e.getStatus() != 404) throw new IOException("File existence check failed", e);
+			return false;
+		}
+	}
+
+	private String prefix(String name) {
+		return name.substring(0, name.lastIndexOf('/') + 1);
+	}
+
 	@Override
 	public void delete(String url, Consumer<Boolean> deleted) throws IOException {
 		Matcher m = DOWNLOAD_MATCHER.matcher(url);
@@ -115,6 +207,10 @@ public class B2Store implements DataStore {
 			checkAccount();
 			B2FileVersion fileInfo = client.getFileInfoByName(bucketInfo.getBucketName(), m.group(2));
 			client.deleteFileVersion(m.group(2), fileInfo.getFileId());
+
+			Set<String> names = existing.get(prefix(m.group(2)));
+			if (names != null) names.remove(m.group(2));
+
 			deleted.accept(true);
 		} catch (B2Exception e) {
 			throw new IOException("Failed to process Backblaze download", e);
@@ -138,6 +234,15 @@ public class B2Store implements DataStore {
 		}
 	}
 
+	@Override
+	public CompletableFuture<Path> downloadAsync(String url) {
+		return transfers.submit(() -> {
+			Path[] file = { null };
+			download(url, f -> file[0] = f);
+			return file[0];
+		});
+	}
+
 	private void checkAccount() throws B2Exception {
 		if (this.account == null) this.account = this.client.getAccountAuthorization();
 		if (this.bucketInfo == null) {
@@ -3,6 +3,9 @@ package net.shrimpworks.unreal.archive.storage;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import net.shrimpworks.unreal.archive.CLI;
@@ -12,6 +15,7 @@ public interface DataStore extends Closeable {
 	enum StoreType {
 		DAV(new DavStore.Factory()),
 		B2(new B2Store.Factory()),
+		LOCAL(new LocalStore.Factory()),
 		NOP(new NopStore.NopStoreFactory()),
 		;
 
@@ -44,6 +48,48 @@ public interface DataStore extends Closeable {
 
 	public void download(String url, Consumer<Path> downloaded) throws IOException;
 
+	/**
+	 * Store a file in the background.
+	 * <p>
+	 * Implementations limit the number of transfers in progress at once, and
+	 * retry failed transfers, so callers may submit many files at once.
+	 *
+	 * @param path file to store
+	 * @param name name to store the file as
+	 * @return a future which completes with the URL of the stored file
+	 * @see Transfers
+	 */
+	public CompletableFuture<String> storeAsync(Path path, String name);
+
+	/**
+	 * Download a file in the background.
+	 *
+	 * @param url URL of the file to download
+	 * @return a future which completes with the downloaded file
+	 * @see Transfers
+	 */
+	public CompletableFuture<Path> downloadAsync(String url);
+
+	/**
+	 * Store several files in the background.
+	 *
+	 * @param files files to store, and the names to store them as
+	 * @return a future which completes with the URLs of the stored files, by
+	 * name, once all files have been stored, or exceptionally if any could
+	 * not be stored
+	 */
+	public default CompletableFuture<Map<String, String>> storeAll(Map<Path, String> files) {
+		final Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+		files.forEach((path, name) -> pending.put(name, storeAsync(path, name)));
+
+		return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+								.thenApply(v -> {
+									Map<String, String> stored = new LinkedHashMap<>();
+									pending.forEach((name, url) -> stored.put(name, url.join()));
+									return stored;
+								});
+	}
+
 	static class NopStore implements DataStore {
 
 		static class NopStoreFactory implements DataStoreFactory {
@@ -69,6 +115,16 @@ public interface DataStore extends Closeable {
 			downloaded.accept(null);
 		}
 
+		@Override
+		public CompletableFuture<String> storeAsync(Path path, String name) {
+			return CompletableFuture.completedFuture("nop://" + name);
+		}
+
+		@Override
+		public CompletableFuture<Path> downloadAsync(String url) {
+			return CompletableFuture.completedFuture(null);
+		}
+
 		@Override
 		public void close() {
 
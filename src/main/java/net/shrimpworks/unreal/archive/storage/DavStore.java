@@ -3,6 +3,7 @@ package net.shrimpworks.unreal.archive.storage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import net.shrimpworks.unreal.archive.CLI;
@@ -29,27 +30,37 @@ public class DavStore implements DataStore {
 
 			if (url == null || url.isEmpty()) throw new IllegalArgumentException("Missing base URL for DAV store; --dav-url or DAV_URL");
 
-			return new DavStore(url);
+			return new DavStore(url, Transfers.fromCli(type, cli));
 		}
 	}
 
 	private final String baseUrl;
+	private final Transfers transfers;
 
-	private DavStore(String baseUrl) {
+	private DavStore(String baseUrl, Transfers transfers) {
 		this.baseUrl = baseUrl;
+		this.transfers = transfers;
 	}
 
 	@Override
 	public void close() {
-		// no-op
+		transfers.close();
 	}
 
 	@Override
 	public void store(Path path, String name, Consumer<String> stored) throws IOException {
+		stored.accept(store(path, name));
+	}
+
+	@Override
+	public CompletableFuture<String> storeAsync(Path path, String name) {
+		return transfers.submit(() -> store(path, name));
+	}
+
+	private String store(Path path, String name) throws IOException {
 		String url = Util.toUriString(baseUrl + name);
 		Util.uploadTo(path, url);
-
-		stored.accept(url);
+		return url;
 	}
 
 	@Override
@@ -59,10 +70,18 @@ public class DavStore implements DataStore {
 
 	@Override
 	public void download(String url, Consumer<Path> downloaded) throws IOException {
+		downloaded.accept(download(url));
+	}
+
+	@Override
+	public CompletableFuture<Path> downloadAsync(String url) {
+		return transfers.submit(() -> download(url));
+	}
+
+	private Path download(String url) throws IOException {
 		Path tempFile = Files.createTempFile("dl_", url.substring(0, url.lastIndexOf("/") + 1));
 		Util.downloadTo(Util.toUriString(url), tempFile);
-
-		downloaded.accept(tempFile);
+		return tempFile;
 	}
 
 }
@@ -0,0 +1,210 @@
+package net.shrimpworks.unreal.archive.storage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import net.shrimpworks.unreal.archive.CLI;
+import net.shrimpworks.unreal.archive.Util;
+
+/**
+ * Stores files in a local directory, such as a local disk or network mount.
+ * <p>
+ * Files are stored by the hash of their content, in directories sharded by
+ * the first two characters of the hash, and retain their original file
+ * names, for example <code>ab/abcdef.../DM-MyMap.zip</code>. The same
+ * content stored under several names occupies the space of a single file,
+ * since additional names are hard-linked to the first, where possible.
+ * <p>
+ * Files are copied to a temporary file in the destination directory, and
+ * then moved into place, so partially written files are never visible.
+ * Optionally, stored files may instead be hard-linked to the source file,
+ * though this means changes to the source file will also change the stored
+ * file.
+ * <p>
+ * URLs of stored files are formed from a configurable base URL, which may
+ * be a file URL, or an HTTP server serving the store's directory. The base
+ * URL is expected to be already encoded, and only the stored file's path
+ * within the store is encoded.
+ */
+public class LocalStore implements DataStore {
+
+	private static final String TEMP_PREFIX = ".store-";
+
+	public static class Factory implements DataStoreFactory {
+
+		@Override
+		public DataStore newStore(StoreContent type, CLI cli) {
+			String path = cli.option("local-path-" + type.name().toLowerCase(), System.getenv("LOCAL_PATH_" + type.name()));
+			if (path == null || path.isEmpty()) path = cli.option("local-path", System.getenv("LOCAL_PATH"));
+			if (path == null || path.isEmpty()) {
+				throw new IllegalArgumentException("Missing path for local store; --local-path or LOCAL_PATH");
+			}
+
+			String url = cli.option("local-url-" + type.name().toLowerCase(), System.getenv("LOCAL_URL_" + type.name()));
+			if (url == null || url.isEmpty()) url = cli.option("local-url", System.getenv("LOCAL_URL"));
+
+			boolean link = Boolean.parseBoolean(cli.option("local-link", "false"));
+
+			try {
+				return new LocalStore(Paths.get(path), url, link, Transfers.fromCli(type, cli));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot use local store path " + path, e);
+			}
+		}
+	}
+
+	private final Path root;
+	private final String baseUrl;
+	private final boolean link;
+	private final Transfers transfers;
+
+	/**
+	 * Create a new local store.
+	 *
+	 * @param root      directory to store files in, which will be created if
+	 *                  it does not exist
+	 * @param baseUrl   base URL of stored files, or null to use file URLs
+	 * @param link      if true, hard-link stored files to their source files
+	 *                  where possible, rather than copying them
+	 * @param transfers executor for asynchronous transfers
+	 * @throws IOException the root directory could not be created
+	 */
+	LocalStore(Path root, String baseUrl, boolean link, Transfers transfers) throws IOException {
+		this.root = Files.createDirectories(root).toAbsolutePath().normalize();
+		this.baseUrl = baseUrl == null || baseUrl.isEmpty()
+				? this.root.toUri().toString()
+				: baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+		this.link = link;
+		this.transfers = transfers;
+	}
+
+	@Override
+	public void close() {
+		transfers.close();
+	}
+
+	@Override
+	public void store(Path path, String name, Consumer<String> stored) throws IOException {
+		stored.accept(store(path, name));
+	}
+
+	@Override
+	public CompletableFuture<String> storeAsync(Path path, String name) {
+		return transfers.submit(() -> store(path, name));
+	}
+
+	private String store(Path path, String name) throws IOException {
+		final String hash = Util.hash(path);
+		final Path dir = Files.createDirectories(root.resolve(hash.substring(0, 2)).resolve(hash));
+		final Path dest = dir.resolve(Util.safeFileName(Util.fileName(name)));
+
+		// the same content may already be stored under this, or another name
+		if (!Files.exists(dest)) {
+			final Optional<Path> existing;
+			try (Stream<Path> files = Files.list(dir)) {
+				existing = files.filter(f -> !f.getFileName().toString().startsWith(TEMP_PREFIX)).findFirst();
+			}
+
+			if (existing.isPresent()) {
+				place(existing.get(), dest, true);
+			} else {
+				place(path, dest, link);
+			}
+		}
+
+		return url(dest);
+	}
+
+	/**
+	 * Hard-link or copy a file to its destination.
+	 * <p>
+	 * If the destination is created concurrently by another store operation,
+	 * it will have the same content, and is left as-is.
+	 */
+	private void place(Path source, Path dest, boolean link) throws IOException {
+		if (link) {
+			try {
+				Files.createLink(dest, source);
+				return;
+			} catch (FileAlreadyExistsException e) {
+				return;
+			} catch (IOException | UnsupportedOperationException e) {
+				// probably on a different file system, fall back to copying
+			}
+		}
+
+		final Path tmp = Files.createTempFile(dest.getParent(), TEMP_PREFIX, ".tmp");
+		try {
+			Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tmp, dest, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public void delete(String url, Consumer<Boolean> deleted) throws IOException {
+		final Path file = path(url);
+		final boolean removed = Files.deleteIfExists(file);
+
+		// remove the hash directory once no names remain
+		try (Stream<Path> files = Files.list(file.getParent())) {
+			if (files.findAny().isEmpty()) Files.deleteIfExists(file.getParent());
+		} catch (IOException e) {
+			// directory already removed, or a file was stored concurrently
+		}
+
+		deleted.accept(removed);
+	}
+
+	@Override
+	public void download(String url, Consumer<Path> downloaded) throws IOException {
+		downloaded.accept(download(url));
+	}
+
+	@Override
+	public CompletableFuture<Path> downloadAsync(String url) {
+		return transfers.submit(() -> download(url));
+	}
+
+	private Path download(String url) throws IOException {
+		final Path file = path(url);
+		final Path tempFile = Files.createTempFile("dl_", "_" + file.getFileName().toString());
+		Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING);
+		return tempFile;
+	}
+
+	private String url(Path file) {
+		final String relative = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+		try {
+			// the relative path always begins with the hash directory, so cannot be mistaken for a URI scheme
+			return baseUrl + new URI(null, null, relative, null).getRawPath()
+														  .replaceAll("\\+", "%2B")
+														  .replaceAll(",", "%2C")
+														  .replaceAll("&", "%26");
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Cannot create URL for file " + file, e);
+		}
+	}
+
+	private Path path(String url) {
+		if (!url.startsWith(baseUrl)) throw new IllegalArgumentException("URL does not belong to this store: " + url);
+
+		final Path file = root.resolve(URLDecoder.decode(url.substring(baseUrl.length()), StandardCharsets.UTF_8)).normalize();
+		if (!file.startsWith(root)) throw new IllegalArgumentException("URL does not belong to this store: " + url);
+
+		return file;
+	}
+}
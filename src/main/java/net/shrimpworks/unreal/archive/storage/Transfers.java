@@ -0,0 +1,148 @@
+package net.shrimpworks.unreal.archive.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.shrimpworks.unreal.archive.CLI;
+
+/**
+ * Runs transfers to and from a {@link DataStore} in the background, limiting
+ * the number of transfers in flight at a time, and retrying failed transfers
+ * with exponential backoff.
+ * <p>
+ * Only transfers which fail with an {@link IOException} are retried, other
+ * failures are assumed to be permanent.
+ */
+public class Transfers implements Closeable {
+
+	private static final int DEFAULT_IN_FLIGHT = 4;
+	private static final int DEFAULT_RETRIES = 3;
+	private static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(1);
+
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	private final int retries;
+	private final Duration backoff;
+	private final ExecutorService executor;
+
+	/**
+	 * Create a new transfer executor.
+	 *
+	 * @param inFlight maximum number of transfers in progress at one time
+	 * @param retries  number of times a failed transfer will be retried
+	 * @param backoff  delay before the first retry, which doubles with each
+	 *                 subsequent retry
+	 */
+	public Transfers(int inFlight, int retries, Duration backoff) {
+		this.retries = Math.max(0, retries);
+		this.backoff = backoff;
+
+		final int pool = POOL_COUNT.incrementAndGet();
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(Math.max(1, inFlight), r -> {
+			Thread t = new Thread(r, String.format("transfer-%d-%d", pool, threadCount.incrementAndGet()));
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Create a transfer executor configured by command line options.
+	 * <p>
+	 * Options may be specified per store content type, for example,
+	 * <code>--store-in-flight-images=8</code>, falling back to the general
+	 * option, <code>--store-in-flight=4</code>.
+	 *
+	 * @param type content type the store is used for
+	 * @param cli  command line options
+	 * @return a new transfer executor
+	 */
+	public static Transfers fromCli(DataStore.StoreContent type, CLI cli) {
+		return new Transfers(
+				Integer.parseInt(option(cli, "store-in-flight", type, Integer.toString(DEFAULT_IN_FLIGHT))),
+				Integer.parseInt(option(cli, "store-retries", type, Integer.toString(DEFAULT_RETRIES))),
+				Duration.ofMillis(Long.parseLong(option(cli, "store-backoff", type, Long.toString(DEFAULT_BACKOFF.toMillis()))))
+		);
+	}
+
+	/**
+	 * Create a transfer executor with default settings.
+	 *
+	 * @return a new transfer executor
+	 */
+	public static Transfers defaults() {
+		return new Transfers(DEFAULT_IN_FLIGHT, DEFAULT_RETRIES, DEFAULT_BACKOFF);
+	}
+
+	private static String option(CLI cli, String option, DataStore.StoreContent type, String defaultValue) {
+		String value = cli.option(option + "-" + type.name().toLowerCase(), null);
+		if (value == null || value.isEmpty()) value = cli.option(option, defaultValue);
+		return value;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Run a transfer in the background.
+	 *
+	 * @param transfer the transfer to perform
+	 * @param <T>      transfer result type
+	 * @return a future which completes with the transfer's result, or
+	 * exceptionally once all retries have been exhausted
+	 */
+	public <T> CompletableFuture<T> submit(Transfer<T> transfer) {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		attempt(transfer, 0, result);
+		return result;
+	}
+
+	private <T> void attempt(Transfer<T> transfer, int attempt, CompletableFuture<T> result) {
+		final Runnable run = () -> {
+			try {
+				result.complete(transfer.run());
+			} catch (IOException | UncheckedIOException e) {
+				if (attempt >= retries) {
+					result.completeExceptionally(e instanceof UncheckedIOException ? e.getCause() : e);
+				} else {
+					attempt(transfer, attempt + 1, result);
+				}
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		};
+
+		try {
+			if (attempt == 0) {
+				executor.execute(run);
+			} else {
+				// back off exponentially, with some jitter so concurrent failures don't all retry at the same moment
+				long delay = backoff.toMillis() * (1L << Math.min(attempt - 1, 16));
+				delay += ThreadLocalRandom.current().nextLong(Math.max(1, delay / 4));
+				CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor).execute(run);
+			}
+		} catch (Exception e) {
+			// the executor has been shut down
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * A single transfer operation, which may be attempted more than once.
+	 */
+	@FunctionalInterface
+	public interface Transfer<T> {
+
+		public T run() throws IOException;
+	}
+}
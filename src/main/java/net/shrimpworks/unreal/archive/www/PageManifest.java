@@ -0,0 +1,203 @@
+package net.shrimpworks.unreal.archive.www;
+
+import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import net.shrimpworks.unreal.archive.Binary;
+import net.shrimpworks.unreal.archive.content.Content;
+
+/**
+ * A record of the pages output by a previous website build, used to skip
+ * rendering of pages which would not change.
+ * <p>
+ * Pages which declare the content they are rendered from (see
+ * {@link Templates.Tpl#dependsOn(Collection)}) are recorded along with a
+ * fingerprint of that content's hashes and revisions. On subsequent builds,
+ * a page is only rendered again if its fingerprint has changed, or the
+ * output file no longer exists. Pages which do not declare any content are
+ * always rendered.
+ * <p>
+ * The manifest also records the build options in effect, and the version
+ * of the templates and application (see {@link Templates#version()}), and
+ * if any of these differ from a previous build, all pages are rendered again.
+ * <p>
+ * The manifest file should not be placed within the website output, since
+ * it would be published along with the website.
+ */
+public class PageManifest {
+
+	private static final int VERSION = 1;
+
+	private final Path root;
+	private final Path path;
+	private final String options;
+	private final boolean incremental;
+	private final Function<String, String> revisions;
+
+	private final Map<String, String> previous;
+	private final Map<String, String> next;
+
+	private final AtomicInteger rendered = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	private PageManifest(Path root, Path path, String options, boolean incremental, Function<String, String> revisions,
+						 Map<String, String> previous) {
+		this.root = root;
+		this.path = path;
+		this.options = options;
+		this.incremental = incremental;
+		this.revisions = revisions;
+		this.previous = previous;
+		this.next = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Load the manifest of a previous build.
+	 *
+	 * @param root        website output root
+	 * @param path        manifest file location
+	 * @param incremental if false, all pages will be rendered, but the
+	 *                    manifest is still recorded for future builds
+	 * @param revisions   provides the current revision of content, by hash
+	 * @param options     build options which affect page output
+	 * @return a manifest
+	 */
+	public static PageManifest load(Path root, Path path, boolean incremental, Function<String, String> revisions,
+									String... options) {
+		String opts = String.join(";", String.join(";", options),
+								  Templates.version(),
+								  SiteMap.SITE_ROOT,
+								  System.getenv().getOrDefault("SITE_NAME", ""),
+								  System.getenv().getOrDefault("STATIC_ROOT", ""));
+
+		Map<String, String> previous = new HashMap<>();
+		if (Files.isRegularFile(path)) {
+			try {
+				Snapshot snapshot = Binary.fromFile(path, Snapshot.class);
+				if (snapshot.version == VERSION && opts.equals(snapshot.options) && snapshot.pages != null) {
+					previous.putAll(snapshot.pages);
+				}
+			} catch (IOException e) {
+				// unreadable or incompatible manifests are ignored, and all pages will be rendered
+			}
+		}
+
+		return new PageManifest(root.toAbsolutePath(), path, opts, incremental, revisions, previous);
+	}
+
+	/**
+	 * Produce a fingerprint of the content a page is rendered from.
+	 *
+	 * @param template template used to render the page
+	 * @param content  content the page is rendered from
+	 * @return page fingerprint
+	 */
+	String fingerprint(String template, Collection<? extends Content> content) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(template.getBytes(StandardCharsets.UTF_8));
+			content.stream()
+				   .map(c -> c.hash)
+				   .distinct()
+				   .sorted(Comparator.naturalOrder())
+				   .forEach(h -> md.update(String.join(":", h, String.valueOf(revisions.apply(h)), "")
+												 .getBytes(StandardCharsets.UTF_8)));
+			return String.format("%040x", new BigInteger(1, md.digest()));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Record that a page is part of this build, and determine whether it
+	 * needs to be rendered.
+	 *
+	 * @param output      page output file
+	 * @param fingerprint content fingerprint of the page, or null if the
+	 *                    page does not declare its content
+	 * @return true if the page is unchanged since the previous build, and
+	 * does not need to be rendered
+	 */
+	boolean unchanged(Path output, String fingerprint) {
+		String key = root.relativize(output.toAbsolutePath()).toString();
+		next.put(key, fingerprint == null ? "" : fingerprint);
+
+		if (incremental && fingerprint != null && fingerprint.equals(previous.get(key)) && Files.exists(output)) {
+			skipped.incrementAndGet();
+			return true;
+		}
+
+		rendered.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Delete pages output by the previous build which were not output by
+	 * this build, such as pages for content which has since been removed.
+	 * <p>
+	 * This should only be used after a complete build, otherwise pages
+	 * belonging to sections which were not built will be removed.
+	 *
+	 * @return number of pages removed
+	 */
+	public int prune() {
+		int removed = 0;
+		for (String page : previous.keySet()) {
+			if (next.containsKey(page)) continue;
+			try {
+				if (Files.deleteIfExists(root.resolve(page))) removed++;
+			} catch (IOException e) {
+				System.err.printf("Failed to remove page %s: %s%n", page, e);
+			}
+		}
+		previous.clear();
+		return removed;
+	}
+
+	/**
+	 * Write the manifest, including any pages from the previous build which
+	 * were not output by this one.
+	 *
+	 * @throws IOException failed to write the manifest
+	 */
+	public void save() throws IOException {
+		Map<String, String> pages = new HashMap<>(previous);
+		pages.putAll(next);
+		Binary.toFile(new Snapshot(VERSION, options, pages), path);
+	}
+
+	public int rendered() {
+		return rendered.get();
+	}
+
+	public int skipped() {
+		return skipped.get();
+	}
+
+	public static class Snapshot {
+
+		public final int version;
+		public final String options;
+		public final Map<String, String> pages;
+
+		@ConstructorProperties({ "version", "options", "pages" })
+		public Snapshot(int version, String options, Map<String, String> pages) {
+			this.version = version;
+			this.options = options;
+			this.pages = pages;
+		}
+	}
+}
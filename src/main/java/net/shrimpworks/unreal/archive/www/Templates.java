@@ -7,7 +7,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Writer;
+import java.math.BigInteger;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -16,7 +18,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -24,6 +29,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.github.rjeschke.txtmark.Processor;
 import freemarker.core.Environment;
@@ -37,6 +44,7 @@ import freemarker.template.TemplateModel;
 import freemarker.template.TemplateModelException;
 
 import net.shrimpworks.unreal.archive.Util;
+import net.shrimpworks.unreal.archive.content.Content;
 
 public class Templates {
 
@@ -95,6 +103,64 @@ public class Templates {
 		}
 	}
 
+	// when set, used to skip rendering of pages which have not changed since a previous build
+	private static volatile PageManifest manifest = null;
+
+	// fingerprint of the templates and application in use, computed when first needed
+	private static volatile String version = null;
+
+	/**
+	 * Set the manifest used to record pages output, and to skip rendering of
+	 * unchanged pages.
+	 *
+	 * @param manifest page manifest, or null to always render all pages
+	 */
+	public static void manifest(PageManifest manifest) {
+		Templates.manifest = manifest;
+	}
+
+	/**
+	 * Produce a fingerprint of the templates and application version used to
+	 * render pages, which will change whenever either of them changes.
+	 * <p>
+	 * When running from a jar file, the entire jar is hashed, covering both
+	 * the templates and the code which provides their data. Otherwise, the
+	 * template sources are hashed. If neither can be read, the fingerprint is
+	 * unique to this process, so nothing will be considered unchanged.
+	 *
+	 * @return templates and application fingerprint
+	 */
+	public static String version() {
+		if (version != null) return version;
+
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(String.valueOf(Templates.class.getPackage().getImplementationVersion()).getBytes(StandardCharsets.UTF_8));
+
+			URL index = Templates.class.getResource("index.ftl");
+			if (index != null && index.getProtocol().equals("file")) {
+				Path root = Paths.get(index.toURI()).getParent();
+				try (Stream<Path> files = Files.walk(root)) {
+					for (Path file : files.filter(f -> f.toString().endsWith(".ftl")).sorted().collect(Collectors.toList())) {
+						md.update(root.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+						md.update(Files.readAllBytes(file));
+					}
+				}
+			} else {
+				Path source = Paths.get(Templates.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+				md.update(Util.hash(source).getBytes(StandardCharsets.UTF_8));
+			}
+
+			version = String.format("%040x", new BigInteger(1, md.digest()));
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			version = "unknown-" + System.nanoTime();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return version;
+	}
+
 	public static Tpl template(String name) throws IOException {
 		return new Tpl(TPL_CONFIG.getTemplate(name), SiteMap.DEFAULT_PAGE);
 	}
@@ -147,6 +213,8 @@ public class Templates {
 
 		private final SiteMap.Page page;
 
+		private Collection<? extends Content> dependencies;
+
 		public Tpl(Template template, SiteMap.Page page) {
 			this.template = template;
 			this.vars = new HashMap<>();
@@ -165,7 +233,27 @@ public class Templates {
 			return this;
 		}
 
+		/**
+		 * Declare the content this page is rendered from.
+		 * <p>
+		 * When building incrementally, the page will only be rendered if any of
+		 * this content has changed since the page was last output.
+		 *
+		 * @param content all content which affects the output of this page
+		 * @return this template
+		 */
+		public Tpl dependsOn(Collection<? extends Content> content) {
+			this.dependencies = content;
+			return this;
+		}
+
 		public SiteMap.Page write(Path output) {
+			final PageManifest pageManifest = manifest;
+			if (pageManifest != null) {
+				String fingerprint = dependencies == null ? null : pageManifest.fingerprint(template.getName(), dependencies);
+				if (pageManifest.unchanged(output, fingerprint)) return page.withPath(output);
+			}
+
 			try (Writer writer = templateOut(output)) {
 				vars.put("pagePath", output.getParent().toAbsolutePath());
 				template.process(vars, writer);
@@ -3,16 +3,25 @@ package net.shrimpworks.unreal.archive.www.content;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import net.shrimpworks.unreal.archive.Util;
 import net.shrimpworks.unreal.archive.content.Content;
 import net.shrimpworks.unreal.archive.content.ContentManager;
+import net.shrimpworks.unreal.archive.storage.Transfers;
 import net.shrimpworks.unreal.archive.www.PageGenerator;
 
 public abstract class ContentPageGenerator implements PageGenerator {
 
+	// shared by all generators, so the number of concurrent image downloads is limited overall
+	private static final Transfers IMAGE_DOWNLOADS = Transfers.defaults();
+
 	final ContentManager content;
 	final Path root;
 	final Path staticRoot;
@@ -34,6 +43,29 @@ public abstract class ContentPageGenerator implements PageGenerator {
 		this.localImages = localImages;
 	}
 
+	/**
+	 * Collect all content which affects the output of a content item's page.
+	 * <p>
+	 * This includes the content itself, its variations or the content it is a
+	 * variation of, and other content sharing any of its files.
+	 *
+	 * @param item content item
+	 * @return content related to the item, including the item itself
+	 */
+	List<Content> related(Content item) {
+		List<Content> related = new ArrayList<>();
+		related.add(item);
+		related.addAll(content.variationsOf(item.hash));
+		if (item.variationOf != null) {
+			Content original = content.forHash(item.variationOf);
+			if (original != null) related.add(original);
+		}
+		for (Content.ContentFile f : item.files) {
+			related.addAll(content.containingFile(f.hash));
+		}
+		return related;
+	}
+
 	/**
 	 * Download and store image files locally.
 	 * <p>
@@ -62,8 +94,10 @@ public abstract class ContentPageGenerator implements PageGenerator {
 			return;
 		}
 
+		// images are downloaded concurrently, and retried if they fail
+		Map<Content.Attachment, CompletableFuture<Content.Attachment>> downloads = new LinkedHashMap<>();
 		for (Content.Attachment img : images) {
-			try {
+			downloads.put(img, IMAGE_DOWNLOADS.submit(() -> {
 				System.out.printf("\rDownloading image %-60s", img.name);
 
 				// prepend filenames with the content hash, to prevent conflicts
@@ -73,12 +107,26 @@ public abstract class ContentPageGenerator implements PageGenerator {
 				// only download if it doesn't already exist locally
 				if (!Files.exists(outPath)) Util.downloadTo(img.url, outPath);
 
+				String thumbnail = null;
+				if (img.thumbnail != null) {
+					Path thumbPath = imgPath.resolve(String.join("_", content.hash.substring(0, 8), Util.fileName(img.thumbnail)));
+					if (!Files.exists(thumbPath)) Util.downloadTo(img.thumbnail, thumbPath);
+					thumbnail = localPath.relativize(thumbPath).toString();
+				}
+
+				return new Content.Attachment(img.type, img.name, localPath.relativize(outPath).toString(), img.hash, thumbnail);
+			}));
+		}
+
+		downloads.forEach((img, download) -> {
+			try {
 				// replace the actual attachment with the local copy
+				Content.Attachment local = download.join();
 				content.attachments.remove(img);
-				content.attachments.add(new Content.Attachment(img.type, img.name, localPath.relativize(outPath).toString()));
-			} catch (Throwable t) {
-				System.err.printf("\rFailed to download image %s: %s%n", img.name, t.toString());
+				content.attachments.add(local);
+			} catch (CompletionException t) {
+				System.err.printf("\rFailed to download image %s: %s%n", img.name, t.getCause().toString());
 			}
-		}
+		});
 	}
 }
@@ -47,6 +47,7 @@ public class FileDetails extends ContentPageGenerator {
 			pages.add("file.ftl", SiteMap.Page.monthly(0.25f), String.join(" / ", "Files", e.getKey().name))
 				 .put("file", e.getKey())
 				 .put("packages", e.getValue())
+				 .dependsOn(e.getValue())
 				 .write(p);
 		});
 
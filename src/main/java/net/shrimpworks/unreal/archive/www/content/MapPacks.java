@@ -60,11 +60,19 @@ public class MapPacks extends ContentPageGenerator {
 				 .write(g.getValue().path.resolve("index.html"));
 
 			g.getValue().gametypes.entrySet().parallelStream().forEach(gt -> {
+
+				// listing pages are affected by any change to any of the gametype's content
+				List<Content> members = gt.getValue().pages.stream()
+														.flatMap(e -> e.packs.stream())
+														.map(e -> e.pack)
+														.collect(Collectors.toList());
+
 				gt.getValue().pages.parallelStream().forEach(p -> {
 					// don't bother creating numbered single page, default landing page will suffice
 					if (gt.getValue().pages.size() > 1) {
 						pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName, gt.getKey()))
 							 .put("page", p)
+							 .dependsOn(members)
 							 .write(p.path.resolve("index.html"));
 					}
 
@@ -74,6 +82,7 @@ public class MapPacks extends ContentPageGenerator {
 				// output first letter/page combo, with appropriate relative links
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName, gt.getKey()))
 					 .put("page", gt.getValue().pages.get(0))
+					 .dependsOn(members)
 					 .write(gt.getValue().path.resolve("index.html"));
 			});
 		});
@@ -88,6 +97,7 @@ public class MapPacks extends ContentPageGenerator {
 																							  pack.page.gametype.game.game.bigName,
 																							  pack.page.gametype.name, pack.pack.name))
 			 .put("pack", pack)
+			 .dependsOn(related(pack.pack))
 			 .write(Paths.get(pack.path.toString() + ".html"));
 
 		for (MapPackInfo variation : pack.variations) {
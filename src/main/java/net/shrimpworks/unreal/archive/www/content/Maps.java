@@ -61,6 +61,13 @@ public class Maps extends ContentPageGenerator {
 
 			g.getValue().gametypes.entrySet().parallelStream().forEach(gt -> {
 
+				// listing pages are affected by any change to any of the gametype's content
+				List<Content> members = gt.getValue().letters.values().stream()
+														.flatMap(l -> l.pages.stream())
+														.flatMap(e -> e.maps.stream())
+														.map(e -> e.map)
+														.collect(Collectors.toList());
+
 				if (gt.getValue().maps < Templates.PAGE_SIZE) {
 					// we can output all maps on a single page
 					List<MapInfo> all = gt.getValue().letters.values().stream()
@@ -71,6 +78,7 @@ public class Maps extends ContentPageGenerator {
 					pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName, gt.getKey()))
 						 .put("gametype", gt.getValue())
 						 .put("maps", all)
+						 .dependsOn(members)
 						 .write(gt.getValue().path.resolve("index.html"));
 
 					// still generate all map pages
@@ -83,6 +91,7 @@ public class Maps extends ContentPageGenerator {
 					l.getValue().pages.parallelStream().forEach(p -> {
 						pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName, gt.getKey()))
 							 .put("page", p)
+							 .dependsOn(members)
 							 .write(p.path.resolve("index.html"));
 
 						p.maps.parallelStream().forEach(map -> mapPage(pages, map));
@@ -91,12 +100,14 @@ public class Maps extends ContentPageGenerator {
 					// output first letter/page combo, with appropriate relative links
 					pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName, gt.getKey()))
 						 .put("page", l.getValue().pages.get(0))
+						 .dependsOn(members)
 						 .write(l.getValue().path.resolve("index.html"));
 				});
 
 				// output first letter/page combo, with appropriate relative links
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName, gt.getKey()))
 					 .put("page", gt.getValue().letters.firstEntry().getValue().pages.get(0))
+					 .dependsOn(members)
 					 .write(gt.getValue().path.resolve("index.html"));
 			});
 		});
@@ -112,6 +123,7 @@ public class Maps extends ContentPageGenerator {
 																						map.page.letter.gametype.name,
 																						map.map.title))
 			 .put("map", map)
+			 .dependsOn(related(map.map))
 			 .write(Paths.get(map.path.toString() + ".html"));
 
 		for (MapInfo variation : map.variations) {
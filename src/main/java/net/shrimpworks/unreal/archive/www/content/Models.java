@@ -55,6 +55,13 @@ public class Models extends ContentPageGenerator {
 
 			var game = net.shrimpworks.unreal.archive.content.Games.byName(g.getKey());
 
+			// listing pages are affected by any change to any of the game's content
+			List<Content> members = g.getValue().letters.values().stream()
+													 .flatMap(l -> l.pages.stream())
+													 .flatMap(e -> e.models.stream())
+													 .map(e -> e.model)
+													 .collect(Collectors.toList());
+
 			if (g.getValue().models < Templates.PAGE_SIZE) {
 				List<ModelInfo> all = g.getValue().letters.values().stream()
 														  .flatMap(l -> l.pages.stream())
@@ -64,6 +71,7 @@ public class Models extends ContentPageGenerator {
 				pages.add("listing.ftl", SiteMap.Page.monthly(0.65f), String.join(" / ", SECTION, game.bigName))
 					 .put("game", g.getValue())
 					 .put("models", all)
+					 .dependsOn(members)
 					 .write(g.getValue().path.resolve("index.html"));
 
 				// still generate all map pages
@@ -76,6 +84,7 @@ public class Models extends ContentPageGenerator {
 				l.getValue().pages.parallelStream().forEach(p -> {
 					pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 						 .put("page", p)
+						 .dependsOn(members)
 						 .write(p.path.resolve("index.html"));
 
 					p.models.parallelStream().forEach(model -> modelPage(pages, model));
@@ -84,12 +93,14 @@ public class Models extends ContentPageGenerator {
 				// output first letter/page combo, with appropriate relative links
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 					 .put("page", l.getValue().pages.get(0))
+					 .dependsOn(members)
 					 .write(l.getValue().path.resolve("index.html"));
 			});
 
 			// output first letter/page combo, with appropriate relative links
 			pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 				 .put("page", g.getValue().letters.firstEntry().getValue().pages.get(0))
+				 .dependsOn(members)
 				 .write(g.getValue().path.resolve("index.html"));
 		});
 
@@ -103,6 +114,7 @@ public class Models extends ContentPageGenerator {
 																							  model.page.letter.game.game.bigName,
 																							  model.model.name))
 			 .put("model", model)
+			 .dependsOn(related(model.model))
 			 .write(Paths.get(model.path.toString() + ".html"));
 
 		// since variations are not top-level things, we need to generate them here
@@ -54,6 +54,13 @@ public class Mutators extends ContentPageGenerator {
 
 			var game = net.shrimpworks.unreal.archive.content.Games.byName(g.getKey());
 
+			// listing pages are affected by any change to any of the game's content
+			List<Content> members = g.getValue().letters.values().stream()
+													 .flatMap(l -> l.pages.stream())
+													 .flatMap(e -> e.mutators.stream())
+													 .map(e -> e.mutator)
+													 .collect(Collectors.toList());
+
 			if (g.getValue().mutators < Templates.PAGE_SIZE) {
 				List<MutatorInfo> all = g.getValue().letters.values().stream()
 															.flatMap(l -> l.pages.stream())
@@ -63,6 +70,7 @@ public class Mutators extends ContentPageGenerator {
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 					 .put("game", g.getValue())
 					 .put("mutators", all)
+					 .dependsOn(members)
 					 .write(g.getValue().path.resolve("index.html"));
 
 				// still generate all mutator pages
@@ -75,6 +83,7 @@ public class Mutators extends ContentPageGenerator {
 				l.getValue().pages.parallelStream().forEach(p -> {
 					pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 						 .put("page", p)
+						 .dependsOn(members)
 						 .write(p.path.resolve("index.html"));
 
 					p.mutators.parallelStream().forEach(mutator -> mutatorPage(pages, mutator));
@@ -83,12 +92,14 @@ public class Mutators extends ContentPageGenerator {
 				// output first letter/page combo, with appropriate relative links
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 					 .put("page", l.getValue().pages.get(0))
+					 .dependsOn(members)
 					 .write(l.getValue().path.resolve("index.html"));
 			});
 
 			// output first letter/page combo, with appropriate relative links
 			pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 				 .put("page", g.getValue().letters.firstEntry().getValue().pages.get(0))
+				 .dependsOn(members)
 				 .write(g.getValue().path.resolve("index.html"));
 		});
 
@@ -102,6 +113,7 @@ public class Mutators extends ContentPageGenerator {
 																									mutator.page.letter.game.game.bigName,
 																									mutator.mutator.name))
 			 .put("mutator", mutator)
+			 .dependsOn(related(mutator.mutator))
 			 .write(Paths.get(mutator.path.toString() + ".html"));
 
 		// since variations are not top-level things, we need to generate them here
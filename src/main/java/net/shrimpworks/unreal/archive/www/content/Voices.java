@@ -53,6 +53,13 @@ public class Voices extends ContentPageGenerator {
 
 			var game = net.shrimpworks.unreal.archive.content.Games.byName(g.getKey());
 
+			// listing pages are affected by any change to any of the game's content
+			List<Content> members = g.getValue().letters.values().stream()
+													 .flatMap(l -> l.pages.stream())
+													 .flatMap(e -> e.voices.stream())
+													 .map(e -> e.voice)
+													 .collect(Collectors.toList());
+
 			if (g.getValue().voices < Templates.PAGE_SIZE) {
 				List<VoiceInfo> all = g.getValue().letters.values().stream()
 														  .flatMap(l -> l.pages.stream())
@@ -62,6 +69,7 @@ public class Voices extends ContentPageGenerator {
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 					 .put("game", g.getValue())
 					 .put("voices", all)
+					 .dependsOn(members)
 					 .write(g.getValue().path.resolve("index.html"));
 
 				// still generate all map pages
@@ -74,6 +82,7 @@ public class Voices extends ContentPageGenerator {
 				l.getValue().pages.parallelStream().forEach(p -> {
 					pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 						 .put("page", p)
+						 .dependsOn(members)
 						 .write(p.path.resolve("index.html"));
 
 					p.voices.parallelStream().forEach(voice -> voicePage(pages, voice));
@@ -82,12 +91,14 @@ public class Voices extends ContentPageGenerator {
 				// output first letter/page combo, with appropriate relative links
 				pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 					 .put("page", l.getValue().pages.get(0))
+					 .dependsOn(members)
 					 .write(l.getValue().path.resolve("index.html"));
 			});
 
 			// output first letter/page combo, with appropriate relative links
 			pages.add("listing.ftl", SiteMap.Page.weekly(0.65f), String.join(" / ", SECTION, game.bigName))
 				 .put("page", g.getValue().letters.firstEntry().getValue().pages.get(0))
+				 .dependsOn(members)
 				 .write(g.getValue().path.resolve("index.html"));
 		});
 
@@ -101,6 +112,7 @@ public class Voices extends ContentPageGenerator {
 																							  voice.page.letter.game.game.bigName,
 																							  voice.voice.name))
 			 .put("voice", voice)
+			 .dependsOn(related(voice.voice))
 			 .write(Paths.get(voice.path.toString() + ".html"));
 
 		// since variations are not top-level things, we need to generate them here
@@ -50,7 +50,7 @@
 	<#else>
 		<#list attachments as a>
 			<#if a.type == "IMAGE">
-				<img src="${urlEncode(a.url)}" class="thumb" alt="screenshot"/>
+				<a href="${urlEncode(a.url)}"><img src="${urlEncode(a.thumbnail!a.url)}" class="thumb" alt="screenshot"/></a>
 			</#if>
 		</#list>
 	</#if>
@@ -0,0 +1,81 @@
+package net.shrimpworks.unreal.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveUtilTest {
+
+	@Test
+	public void extractZip() throws Exception {
+		Path tmpRoot = Files.createTempDirectory("test-archive");
+		try {
+			Path inner = tmpRoot.resolve("inner.zip");
+			try (OutputStream os = Files.newOutputStream(inner)) {
+				os.write(zip("Maps\\DM-Inner.unr", "inner map"));
+			}
+
+			Path outer = tmpRoot.resolve("outer.zip");
+			try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(outer))) {
+				zip.putNextEntry(new ZipEntry("System/"));
+				zip.putNextEntry(new ZipEntry("System/Test.int"));
+				zip.write("[Public]".getBytes(StandardCharsets.UTF_8));
+				zip.putNextEntry(new ZipEntry("inner.zip"));
+				zip.write(Files.readAllBytes(inner));
+			}
+
+			Map<String, String> hashes = new HashMap<>();
+			Path dest = ArchiveUtil.extract(outer, tmpRoot.resolve("out"), Duration.ofSeconds(10), true, hashes);
+
+			assertEquals("[Public]", Files.readString(dest.resolve("System").resolve("Test.int")));
+			assertTrue(Files.isRegularFile(dest.resolve("inner.zip")));
+			Path map = dest.resolve("inner").resolve("Maps").resolve("DM-Inner.unr");
+			assertEquals("inner map", Files.readString(map));
+
+			// files are hashed as they're unpacked, including those in nested archives
+			assertEquals(3, hashes.size());
+			assertEquals(Util.hash(map), hashes.get(map.toAbsolutePath().normalize().toString()));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	@Test
+	public void rejectZipSlip() throws Exception {
+		Path tmpRoot = Files.createTempDirectory("test-archive");
+		try {
+			Path bad = tmpRoot.resolve("bad.zip");
+			try (OutputStream os = Files.newOutputStream(bad)) {
+				os.write(zip("../escaped.txt", "nope"));
+			}
+
+			assertThrows(ArchiveUtil.BadArchiveException.class,
+						 () -> ArchiveUtil.extract(bad, tmpRoot.resolve("out"), Duration.ofSeconds(10)));
+
+			assertFalse(Files.exists(tmpRoot.resolve("escaped.txt")));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	private byte[] zip(String name, String content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,104 @@
+package net.shrimpworks.unreal.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UtilTest {
+
+	@Test
+	public void httpTransfers() throws IOException {
+		final Map<String, byte[]> files = new ConcurrentHashMap<>();
+		final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			switch (exchange.getRequestMethod()) {
+				case "PUT":
+					files.put(path, exchange.getRequestBody().readAllBytes());
+					exchange.sendResponseHeaders(201, -1);
+					break;
+				case "DELETE":
+					exchange.sendResponseHeaders(files.remove(path) != null ? 204 : 404, -1);
+					break;
+				default:
+					byte[] content = files.get(path);
+					String range = exchange.getRequestHeaders().getFirst("Range");
+					if (content == null) {
+						exchange.sendResponseHeaders(404, -1);
+					} else if (range != null) {
+						int start = Integer.parseInt(range.replaceAll("bytes=(\\d+)-", "$1"));
+						if (start >= content.length) {
+							exchange.sendResponseHeaders(416, -1);
+						} else {
+							exchange.getResponseHeaders().add("Content-Range",
+															  String.format("bytes %d-%d/%d", start, content.length - 1, content.length));
+							exchange.sendResponseHeaders(206, content.length - start);
+							try (OutputStream os = exchange.getResponseBody()) {
+								os.write(content, start, content.length - start);
+							}
+						}
+					} else {
+						exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"named.txt\"");
+						exchange.sendResponseHeaders(200, content.length);
+						try (OutputStream os = exchange.getResponseBody()) {
+							os.write(content);
+						}
+					}
+			}
+			exchange.close();
+		});
+		server.start();
+
+		final Path tmp = Files.createTempDirectory("test-http");
+		try {
+			final String url = String.format("http://127.0.0.1:%d/files/some%%20file.txt", server.getAddress().getPort());
+
+			Path upload = Files.write(tmp.resolve("upload.txt"), "hello http".getBytes(StandardCharsets.UTF_8));
+			assertTrue(Util.uploadTo(upload, url));
+
+			// to a specific file
+			Path file = Util.downloadTo(url, tmp.resolve("download.txt"));
+			assertEquals("hello http", Files.readString(file));
+
+			// to a directory, named by the response
+			Path dir = Files.createDirectories(tmp.resolve("dir"));
+			Path named = Util.downloadTo(url, dir);
+			assertEquals(dir.resolve("named.txt"), named);
+			assertEquals("hello http", Files.readString(named));
+
+			String[] body = { null };
+			Util.urlRequest(url, r -> {
+				try {
+					body[0] = new String(r.body().readAllBytes(), StandardCharsets.UTF_8);
+				} catch (IOException e) {
+					fail(e.toString());
+				}
+			});
+			assertEquals("hello http", body[0]);
+
+			// resume a partial download
+			Path partial = Files.write(tmp.resolve("partial.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+			assertEquals("hello http", Files.readString(Util.resumeDownloadTo(url, partial)));
+			assertEquals("hello http", Files.readString(Util.resumeDownloadTo(url, partial)));
+
+			assertTrue(Util.deleteRemote(url));
+			assertFalse(Util.deleteRemote(url));
+
+			assertThrows(IOException.class, () -> Util.downloadTo(url, tmp.resolve("missing.txt")));
+			assertFalse(Files.exists(tmp.resolve("missing.txt")));
+		} finally {
+			server.stop(0);
+			ArchiveUtil.cleanPath(tmp);
+		}
+	}
+}
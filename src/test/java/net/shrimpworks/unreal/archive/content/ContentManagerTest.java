@@ -0,0 +1,216 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.YAML;
+import net.shrimpworks.unreal.archive.content.maps.Map;
+import net.shrimpworks.unreal.archive.storage.DataStore;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentManagerTest {
+
+	@Test
+	public void snapshotLoad() throws IOException {
+		Path tmpRoot = Files.createTempDirectory("test-content");
+		Path snapshot = tmpRoot.resolve("snapshot.cache");
+		try {
+			Path contentRoot = Files.createDirectories(tmpRoot.resolve("content"));
+
+			ContentManager cm = contentManager(contentRoot, snapshot);
+			Map map = mockContent("DM-Test", "Bob");
+			assertTrue(cm.checkin(new IndexResult<>(map, Collections.emptySet()), null));
+			assertTrue(cm.checkin(new IndexResult<>(mockContent("DM-Other", "Jim"), Collections.emptySet()), null));
+
+			// first load writes a snapshot
+			assertFalse(Files.exists(snapshot));
+			assertEquals(2, contentManager(contentRoot, snapshot).size());
+			assertTrue(Files.exists(snapshot));
+			assertEquals(2, ContentSnapshot.load(snapshot, contentRoot).entries.size());
+
+			// second load should come from the snapshot, and be identical
+			ContentManager fromSnapshot = contentManager(contentRoot, snapshot);
+			assertEquals(2, fromSnapshot.size());
+			assertEquals(map, fromSnapshot.forHash(map.hash));
+
+			// modify a file on disk, it should be re-read despite the snapshot
+			Path yml = Files.walk(contentRoot).filter(p -> p.toString().contains("DM-Test")).findFirst().orElseThrow();
+			Map changed = YAML.fromFile(yml, Map.class);
+			changed.author = "Joe";
+			Files.write(yml, YAML.toString(changed).getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(yml, FileTime.fromMillis(Files.getLastModifiedTime(yml).toMillis() + 1000));
+
+			assertEquals("Joe", contentManager(contentRoot, snapshot).forHash(map.hash).author);
+
+			// remove a file, it should no longer be loaded
+			Files.delete(yml);
+			ContentManager removed = contentManager(contentRoot, snapshot);
+			assertEquals(1, removed.size());
+			assertNull(removed.forHash(map.hash));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	@Test
+	public void concurrentCheckin() throws Exception {
+		Path tmpRoot = Files.createTempDirectory("test-content");
+		try {
+			ContentManager cm = contentManager(tmpRoot, null);
+			Map original = mockContent("DM-Original", "Bob");
+			assertTrue(cm.checkin(new IndexResult<>(original, Collections.emptySet()), null));
+
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			try {
+				List<Future<Boolean>> results = new ArrayList<>();
+				for (int i = 0; i < 100; i++) {
+					Map map = mockContent("DM-Variation-" + i, "Bob");
+					map.variationOf = original.hash;
+					results.add(executor.submit(() -> cm.checkin(new IndexResult<>(map, Collections.emptySet()), null)));
+					results.add(executor.submit(() -> cm.update(original.hash, c -> {
+						c.description = "Updated by " + map.name;
+						return true;
+					})));
+				}
+				for (Future<Boolean> result : results) assertTrue(result.get());
+			} finally {
+				executor.shutdownNow();
+			}
+
+			assertEquals(101, cm.size());
+			assertEquals(100, cm.variationsOf(original.hash).size());
+			assertTrue(cm.forHash(original.hash).description.startsWith("Updated by"));
+
+			// everything written should be readable, with nothing left behind by interrupted writes
+			assertEquals(101, contentManager(tmpRoot, null).size());
+			assertTrue(Files.walk(tmpRoot).noneMatch(p -> p.toString().endsWith(".tmp")));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	@Test
+	public void searchIndexes() throws IOException {
+		Path tmpRoot = Files.createTempDirectory("test-content");
+		try {
+			ContentManager cm = contentManager(tmpRoot, null);
+			Map map = mockContent("DM-Deck16", "Bob Smith");
+			assertTrue(cm.checkin(new IndexResult<>(map, Collections.emptySet()), null));
+			assertTrue(cm.checkin(new IndexResult<>(mockContent("DM-Morpheus", "Jim"), Collections.emptySet()), null));
+
+			assertEquals(2, cm.search("Unreal Tournament", "MAP", null, null).size());
+			assertEquals(1, cm.search("unreal tournament", null, "deck", null).size());
+			assertEquals(1, cm.search(null, null, null, "smith").size());
+			assertEquals(2, cm.search(null, null, "DM", null).size());
+			assertTrue(cm.search("Unreal", null, null, null).isEmpty());
+			assertTrue(cm.search(null, null, "Facing Worlds", null).isEmpty());
+			assertEquals(1, cm.forName("dm-deck16").size());
+			assertEquals(2, cm.get(Map.class).size());
+
+			// changes should be reflected in the indexes
+			assertTrue(cm.update(map.hash, c -> {
+				c.author = "Joe";
+				return true;
+			}));
+			assertTrue(cm.search(null, null, null, "smith").isEmpty());
+			assertEquals(1, cm.search(null, null, "deck", "joe").size());
+
+			// results always reflect the live content, even if modified without being checked in
+			cm.forHash(map.hash).author = "Sam";
+			assertTrue(cm.search(null, null, "deck", "joe").isEmpty());
+
+			assertTrue(cm.forName(null).isEmpty());
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	@Test
+	public void sharedImages() throws Exception {
+		Path tmpRoot = Files.createTempDirectory("test-content");
+		try {
+			AtomicInteger stored = new AtomicInteger();
+			DataStore imageStore = new DataStore.NopStore() {
+				@Override
+				public CompletableFuture<String> storeAsync(Path path, String name) {
+					stored.incrementAndGet();
+					if (name.contains("broken")) return CompletableFuture.failedFuture(new IOException("Failed to store " + name));
+					return CompletableFuture.supplyAsync(() -> "nop://" + name, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+				}
+			};
+			ContentManager cm = new ContentManager(Files.createDirectories(tmpRoot.resolve("content")), null, new DataStore.NopStore(), imageStore,
+												   new DataStore.NopStore());
+
+			// the same image checked in concurrently by several pieces of content is only stored once
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			List<Path> images = new ArrayList<>();
+			try {
+				List<Future<Boolean>> results = new ArrayList<>();
+				for (int i = 0; i < 4; i++) {
+					Map map = mockContent("DM-Shared-" + i, "Bob");
+					Path image = Files.write(tmpRoot.resolve("shot-" + i + ".png"), "image".getBytes(StandardCharsets.UTF_8));
+					images.add(image);
+					IndexResult.NewAttachment attachment = new IndexResult.NewAttachment(
+							Content.AttachmentType.IMAGE, "shot.png", CompletableFuture.completedFuture(image), image, "shared", null);
+					results.add(executor.submit(() -> cm.checkin(new IndexResult<>(map, Set.of(attachment)), null)));
+				}
+				for (Future<Boolean> result : results) assertTrue(result.get());
+			} finally {
+				executor.shutdownNow();
+			}
+
+			assertEquals(1, stored.get());
+			assertEquals(1, cm.search(null, null, "DM-Shared", null).stream()
+							  .map(c -> c.attachments.get(0).url)
+							  .distinct().count());
+			assertTrue(images.stream().noneMatch(Files::exists));
+
+			// when an image cannot be stored, neither is its thumbnail
+			Path image = Files.write(tmpRoot.resolve("broken.png"), "image".getBytes(StandardCharsets.UTF_8));
+			Path thumb = Files.write(tmpRoot.resolve("broken_t.png"), "thumb".getBytes(StandardCharsets.UTF_8));
+			IndexResult.NewAttachment attachment = new IndexResult.NewAttachment(
+					Content.AttachmentType.IMAGE, "broken.png", CompletableFuture.completedFuture(image), image, "broken",
+					new IndexResult.NewAttachment(Content.AttachmentType.IMAGE, "broken_t.png", thumb));
+			stored.set(0);
+			assertThrows(IOException.class,
+						 () -> cm.checkin(new IndexResult<>(mockContent("DM-Broken", "Bob"), Set.of(attachment)), null));
+			assertEquals(1, stored.get());
+			assertFalse(Files.exists(image));
+			assertFalse(Files.exists(thumb));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	private ContentManager contentManager(Path root, Path snapshot) throws IOException {
+		return new ContentManager(root, snapshot, new DataStore.NopStore(), new DataStore.NopStore(), new DataStore.NopStore());
+	}
+
+	private Map mockContent(String name, String author) {
+		Map map = ContentType.MAP.newContent(null);
+		map.name = name;
+		map.author = author;
+		map.game = "Unreal Tournament";
+		map.gametype = "Deathmatch";
+		map.hash = String.format("%040x", name.hashCode());
+		map.files.add(new Content.ContentFile(name + ".unr", 1024, String.format("%040x", (name + ".unr").hashCode())));
+		return map;
+	}
+}
@@ -0,0 +1,56 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.Util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashCacheTest {
+
+	@Test
+	public void cachedHashes() throws IOException {
+		Path tmpRoot = Files.createTempDirectory("test-hashes");
+		try {
+			Path cacheFile = tmpRoot.resolve("hashes.cache");
+			Path file = Files.writeString(tmpRoot.resolve("file.zip"), "hello");
+			FileTime modified = Files.getLastModifiedTime(file);
+			String hash = Util.hash(file);
+
+			HashCache cache = HashCache.load(cacheFile, false);
+			assertEquals(hash, cache.hash(file));
+			cache.save();
+			assertTrue(Files.exists(cacheFile));
+
+			// same size and time, the cached hash is trusted even though the content differs
+			Files.writeString(file, "jello");
+			Files.setLastModifiedTime(file, modified);
+			assertEquals(hash, HashCache.load(cacheFile, false).hash(file));
+
+			// unless verification is requested
+			HashCache verify = HashCache.load(cacheFile, true);
+			assertEquals(Util.hash(file), verify.hash(file));
+			verify.save();
+			assertEquals(Util.hash(file), HashCache.load(cacheFile, false).hash(file));
+
+			// or the file changes
+			Files.writeString(file, "hello world");
+			assertEquals(Util.hash(file), HashCache.load(cacheFile, false).hash(file));
+
+			// removed files are forgotten when saved
+			Files.delete(file);
+			HashCache removed = HashCache.load(cacheFile, false);
+			assertEquals(1, removed.size());
+			removed.save();
+			assertEquals(0, HashCache.load(cacheFile, false).size());
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageEncoderTest {
+
+	@Test
+	public void encodeImages() throws IOException {
+		BufferedImage image = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(10, 10, 0xffff0000);
+
+		for (ImageEncoder.Format format : new ImageEncoder.Format[] { ImageEncoder.Format.PNG, ImageEncoder.Format.JPEG }) {
+			ImageEncoder encoder = new ImageEncoder(format, 9, 80, 2);
+
+			String name = encoder.fileName("test_shot_1.png");
+			assertEquals("test_shot_1." + format.ext, name);
+
+			Path out = encoder.write(image, encoder.output(name)).join();
+			try {
+				BufferedImage read = ImageIO.read(out.toFile());
+				assertEquals(64, read.getWidth());
+				assertEquals(32, read.getHeight());
+			} finally {
+				Files.deleteIfExists(out);
+			}
+		}
+	}
+
+	@Test
+	public void hashAndThumbnail() throws IOException {
+		BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(10, 10, 0xff0000);
+
+		BufferedImage copy = new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB);
+		copy.getGraphics().drawImage(image, 0, 0, null);
+
+		// identical pixel content, regardless of image type
+		assertEquals(ImageEncoder.hash(image), ImageEncoder.hash(copy));
+
+		copy.setRGB(20, 20, 0xff00ff00);
+		assertNotEquals(ImageEncoder.hash(image), ImageEncoder.hash(copy));
+
+		ImageEncoder encoder = new ImageEncoder(ImageEncoder.Format.PNG, -1, 90, 1);
+		Path out = encoder.thumbnail(image, 320, encoder.output("test_thumb.png")).join();
+		try {
+			BufferedImage read = ImageIO.read(out.toFile());
+			assertEquals(320, read.getWidth());
+			assertEquals(240, read.getHeight());
+		} finally {
+			Files.deleteIfExists(out);
+		}
+	}
+}
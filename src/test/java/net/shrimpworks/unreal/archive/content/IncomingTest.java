@@ -0,0 +1,135 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.Util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncomingTest {
+
+	@Test
+	public void lazyExtract() throws IOException {
+		Path tmpRoot = Files.createTempDirectory("test-incoming");
+		try {
+			Path zip = tmpRoot.resolve("DM-Test.zip");
+			try (ZipOutputStream os = new ZipOutputStream(Files.newOutputStream(zip))) {
+				entry(os, "Maps/DM-Test.unr", "map data");
+				entry(os, "Textures\\Test.utx", "texture data");
+				entry(os, "System/Test.int", "[Public]");
+			}
+
+			Submission sub = new Submission(zip);
+			Path contentRoot;
+			try (Incoming incoming = new Incoming(sub, new IndexLog(sub), true).prepare()) {
+				contentRoot = incoming.contentRoot;
+
+				assertEquals(1, incoming.files(Incoming.FileType.MAP).size());
+				assertEquals(1, incoming.files(Incoming.FileType.TEXTURE).size());
+				assertEquals(3, incoming.files(Incoming.FileType.ALL).size());
+				assertTrue(incoming.files(Incoming.FileType.UMOD).isEmpty());
+
+				// file sets are built once, and shared
+				assertSame(incoming.files(Incoming.FileType.MAP), incoming.files(Incoming.FileType.MAP));
+				assertEquals("utx", incoming.files(Incoming.FileType.TEXTURE).iterator().next().extension);
+
+				// nothing should be extracted until needed
+				assertEquals(0, Files.walk(contentRoot).filter(Files::isRegularFile).count());
+
+				Incoming.IncomingFile map = incoming.files(Incoming.FileType.MAP).iterator().next();
+				assertEquals("DM-Test.unr", map.fileName());
+				assertEquals(8, map.fileSize());
+				assertEquals(Util.hash(new ByteArrayInputStream("map data".getBytes(StandardCharsets.UTF_8))), map.hash());
+				assertEquals(0, Files.walk(contentRoot).filter(Files::isRegularFile).count());
+
+				try (SeekableByteChannel channel = map.asChannel()) {
+					ByteBuffer buffer = ByteBuffer.allocate(64);
+					channel.read(buffer);
+					assertEquals("map data", new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+				}
+
+				// only the opened file has been written to disk
+				Set<Incoming.IncomingFile> textures = incoming.files(Incoming.FileType.TEXTURE);
+				assertEquals(1, Files.walk(contentRoot).filter(Files::isRegularFile).count());
+				assertEquals("Test.utx", textures.iterator().next().fileName());
+
+				// parsed .int files are shared
+				Incoming.IncomingFile intFile = incoming.files(Incoming.FileType.INT).iterator().next();
+				assertSame(intFile.asIntFile(), intFile.asIntFile());
+			}
+
+			assertFalse(Files.exists(contentRoot));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	@Test
+	public void lazyExtractFallback() throws IOException {
+		Path tmpRoot = Files.createTempDirectory("test-incoming");
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ZipOutputStream os = new ZipOutputStream(bytes)) {
+				entry(os, "Maps/DM-Test.unr", "map data");
+				entry(os, "Textures/Test.utx", "texture data");
+			}
+
+			// corrupt the texture's compressed data, so the entry is listed, but can't be read
+			byte[] data = bytes.toByteArray();
+			int name = indexOf(data, "Textures/Test.utx".getBytes(StandardCharsets.UTF_8));
+			data[name + "Textures/Test.utx".length() + (data[name - 2] & 0xff) + ((data[name - 1] & 0xff) << 8)] = (byte)0xff;
+
+			Path zip = Files.write(tmpRoot.resolve("DM-Test.zip"), data);
+
+			Submission sub = new Submission(zip);
+			Path contentRoot;
+			try (Incoming incoming = new Incoming(sub, new IndexLog(sub), true).prepare()) {
+				contentRoot = incoming.contentRoot;
+				assertEquals(2, incoming.files(Incoming.FileType.ALL).size());
+
+				Incoming.IncomingFile map = incoming.files(Incoming.FileType.MAP).iterator().next();
+				try (SeekableByteChannel mapChannel = map.asChannel()) {
+					// the texture can't be read in-process, so the whole archive is extracted elsewhere, which also fails
+					Incoming.IncomingFile texture = incoming.files(Incoming.FileType.TEXTURE).iterator().next();
+					assertThrows(IllegalStateException.class, texture::asChannel);
+
+					// files already written are left alone, and remain readable
+					assertTrue(Files.exists(contentRoot.resolve("Maps/DM-Test.unr")));
+					ByteBuffer buffer = ByteBuffer.allocate(64);
+					mapChannel.read(buffer);
+					assertEquals("map data", new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+				}
+			}
+
+			assertFalse(Files.exists(contentRoot));
+		} finally {
+			ArchiveUtil.cleanPath(tmpRoot);
+		}
+	}
+
+	private int indexOf(byte[] data, byte[] find) {
+		for (int i = 0; i <= data.length - find.length; i++) {
+			if (Arrays.equals(data, i, i + find.length, find, 0, find.length)) return i;
+		}
+		return -1;
+	}
+
+	private void entry(ZipOutputStream zip, String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
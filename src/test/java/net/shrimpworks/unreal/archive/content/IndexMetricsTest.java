@@ -0,0 +1,60 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import net.shrimpworks.unreal.archive.YAML;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexMetricsTest {
+
+	@Test
+	public void stageHistograms() throws IOException {
+		IndexMetrics metrics = new IndexMetrics();
+
+		IndexLog fast = new IndexLog(new Submission(Paths.get("fast.zip")));
+		fast.timings.put("hash", TimeUnit.MILLISECONDS.toNanos(2));
+		fast.timings.put(IndexMetrics.TOTAL, TimeUnit.MILLISECONDS.toNanos(40));
+		metrics.record(fast);
+
+		IndexLog slow = new IndexLog(new Submission(Paths.get("slow.zip")));
+		slow.timings.put("hash", TimeUnit.SECONDS.toNanos(3));
+		slow.timings.put(IndexMetrics.TOTAL, TimeUnit.SECONDS.toNanos(20));
+		metrics.record(slow);
+
+		// timings of the same stage accumulate
+		long started = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+		assertTrue(fast.time("hash", started) >= started);
+		assertTrue(fast.timings.get("hash") >= TimeUnit.MILLISECONDS.toNanos(7));
+
+		IndexMetrics.Histogram hash = metrics.stages().get("hash");
+		assertEquals(2, hash.count());
+		assertEquals(3.002, hash.sum(), 0.0001);
+		assertEquals(3.0, hash.max(), 0.0001);
+
+		// cumulative buckets, 2ms falls within the 5ms bucket and above, 3s within the 5s bucket and above
+		long[] buckets = hash.buckets();
+		assertEquals(0, buckets[0]);
+		assertEquals(1, buckets[1]);
+		assertEquals(2, buckets[buckets.length - 1]);
+
+		assertEquals(Paths.get("slow.zip"), metrics.slowest().get(0).file);
+		assertEquals(Paths.get("fast.zip"), metrics.slowest().get(1).file);
+
+		String prometheus = metrics.toPrometheus();
+		assertTrue(prometheus.contains("# TYPE unreal_archive_index_stage_seconds histogram"));
+		assertTrue(prometheus.contains("unreal_archive_index_stage_seconds_bucket{stage=\"hash\",le=\"0.005\"} 1"));
+		assertTrue(prometheus.contains("unreal_archive_index_stage_seconds_bucket{stage=\"hash\",le=\"+Inf\"} 2"));
+		assertTrue(prometheus.contains("unreal_archive_index_stage_seconds_count{stage=\"total\"} 2"));
+
+		// JSON is also valid YAML
+		JsonNode json = YAML.fromString(metrics.toJson(), JsonNode.class);
+		assertEquals(2, json.get("stages").get("hash").get("count").asInt());
+		assertEquals("slow.zip", json.get("slowest").get(0).get("file").asText());
+	}
+}
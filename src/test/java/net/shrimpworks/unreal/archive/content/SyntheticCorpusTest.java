@@ -0,0 +1,66 @@
+package net.shrimpworks.unreal.archive.content;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.YAML;
+import net.shrimpworks.unreal.archive.storage.DataStore;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyntheticCorpusTest {
+
+	@Test
+	public void generateCorpus() throws IOException {
+		SyntheticCorpus corpus = new SyntheticCorpus(500, 42);
+
+		// generation is repeatable, and independent of order
+		assertEquals(YAML.toString(corpus.content(123)), YAML.toString(new SyntheticCorpus(500, 42).content(123)));
+		assertNotEquals(corpus.content(123).hash, new SyntheticCorpus(500, 43).content(123).hash);
+
+		Path tmp = Files.createTempDirectory("test-corpus");
+		try {
+			AtomicInteger written = new AtomicInteger();
+			corpus.write(tmp, false, 0, n -> written.incrementAndGet());
+			assertEquals(corpus.size(), written.get());
+
+			Path content = tmp.resolve("content");
+
+			ContentManager cm = new ContentManager(content, new DataStore.NopStore(), new DataStore.NopStore(),
+												   new DataStore.NopStore());
+			assertEquals(corpus.size(), cm.size());
+
+			Set<String> types = cm.search(null, null, null, null).stream().map(c -> c.contentType).collect(Collectors.toSet());
+			assertTrue(types.containsAll(Set.of("MAP", "MAP_PACK", "SKIN", "MODEL", "VOICE", "MUTATOR")));
+
+			// variations share the name of the content they're a variation of
+			Content variation = cm.search(null, null, null, null).stream()
+								  .filter(c -> c.variationOf != null)
+								  .findFirst().orElseThrow();
+			assertEquals(variation.name, cm.forHash(variation.variationOf).name);
+
+			// only reserved example hosts are referenced
+			assertTrue(cm.search(null, null, null, null).stream()
+						 .flatMap(c -> c.downloads.stream())
+						 .allMatch(d -> d.url.matches("https://[^/]+\\.example\\.(com|org|net)/.*")));
+			assertTrue(cm.variationsOf(variation.variationOf).contains(variation));
+
+			Path zip = corpus.submission(0, tmp.resolve("submissions"), 1024);
+			try (ZipFile zf = new ZipFile(zip.toFile())) {
+				assertTrue(zf.stream().anyMatch(e -> e.getName().endsWith(".unr")
+													 || e.getName().endsWith(".utx")
+													 || e.getName().endsWith(".int")));
+			}
+		} finally {
+			ArchiveUtil.cleanPath(tmp);
+		}
+	}
+}
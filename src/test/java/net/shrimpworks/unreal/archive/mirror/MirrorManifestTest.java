@@ -0,0 +1,64 @@
+package net.shrimpworks.unreal.archive.mirror;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MirrorManifestTest {
+
+	@Test
+	public void manifestDelta() throws IOException {
+		Path tmp = Files.createTempDirectory("test-mirror-manifest");
+		try {
+			Path path = tmp.resolve(".mirror-manifest");
+
+			MirrorManifest first = MirrorManifest.load(path);
+			assertEquals(0, first.size());
+			assertFalse(first.verified("aaaa", "maps/a.zip", 100));
+
+			first.record("aaaa", "maps/a.zip", 100);
+			first.record("bbbb", "maps/b.zip", 200);
+			first.save();
+
+			MirrorManifest second = MirrorManifest.load(path);
+			assertEquals(2, second.size());
+			assertTrue(second.verified("aaaa", "maps/a.zip", 100));
+
+			// the file must also still exist, with the recorded size
+			assertFalse(second.verified("aaaa", tmp, "maps/a.zip", 100));
+			Files.createDirectories(tmp.resolve("maps"));
+			Files.write(tmp.resolve("maps/a.zip"), new byte[100]);
+			assertTrue(second.verified("aaaa", tmp, "maps/a.zip", 100));
+			Files.write(tmp.resolve("maps/a.zip"), new byte[50]);
+			assertFalse(second.verified("aaaa", tmp, "maps/a.zip", 100));
+
+			// changed path or size are not considered verified
+			assertFalse(second.verified("aaaa", "maps/moved/a.zip", 100));
+			assertFalse(second.verified("aaaa", "maps/a.zip", 101));
+			assertEquals("maps/a.zip", second.get("aaaa").path);
+
+			// content no longer present
+			Collection<MirrorManifest.Entry> orphans = second.orphans(Set.of("aaaa"));
+			assertEquals(1, orphans.size());
+			assertEquals("bbbb", orphans.iterator().next().hash);
+			second.remove("bbbb");
+			second.save();
+
+			assertEquals(1, MirrorManifest.load(path).size());
+
+			// unreadable manifests are ignored
+			Files.write(path, "nonsense".getBytes());
+			assertEquals(0, MirrorManifest.load(path).size());
+		} finally {
+			ArchiveUtil.cleanPath(tmp);
+		}
+	}
+}
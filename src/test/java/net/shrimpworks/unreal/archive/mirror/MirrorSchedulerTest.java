@@ -0,0 +1,72 @@
+package net.shrimpworks.unreal.archive.mirror;
+
+import java.util.List;
+
+import net.shrimpworks.unreal.archive.content.Content;
+import net.shrimpworks.unreal.archive.content.ContentType;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MirrorSchedulerTest {
+
+	@Test
+	public void largestFirstWithHostLimits() throws InterruptedException {
+		Content a1 = content("a1", 100, "https://a.example.com/a1.zip");
+		Content a2 = content("a2", 300, "https://a.example.com/a2.zip");
+		Content a3 = content("a3", 200, "https://a.example.com/a3.zip");
+		Content b1 = content("b1", 150, "https://b.example.com/b1.zip");
+
+		MirrorScheduler scheduler = new MirrorScheduler(List.of(a1, a2, a3, b1), 1);
+		assertEquals(4, scheduler.remaining());
+
+		// largest overall first, then the largest from a host with capacity
+		assertSame(a2, scheduler.take());
+		assertSame(b1, scheduler.take());
+		assertEquals(2, scheduler.remaining());
+
+		// host a is at capacity until a2 is done
+		scheduler.done(a2);
+		assertSame(a3, scheduler.take());
+		scheduler.done(a3);
+		scheduler.done(b1);
+		assertSame(a1, scheduler.take());
+		scheduler.done(a1);
+
+		assertNull(scheduler.take());
+		assertEquals(0, scheduler.remaining());
+	}
+
+	@Test
+	public void fallbackHostLimits() throws InterruptedException {
+		Content a1 = content("a1", 100, "https://a.example.com/a1.zip");
+		Content b1 = content("b1", 150, "https://b.example.com/b1.zip");
+
+		MirrorScheduler scheduler = new MirrorScheduler(List.of(a1, b1), 1);
+
+		// a fallback download from host b holds host b's capacity
+		assertEquals("a.example.com", MirrorScheduler.host(a1));
+		scheduler.acquire(MirrorScheduler.host("https://b.example.com/mirror/a1.zip"));
+		assertSame(a1, scheduler.take());
+
+		// b1 can't be taken until the fallback is finished
+		Thread release = new Thread(() -> scheduler.release("b.example.com"));
+		release.start();
+		assertSame(b1, scheduler.take());
+		release.join();
+
+		// hosts not otherwise known are also limited
+		scheduler.acquire("c.example.com");
+		scheduler.release("c.example.com");
+		scheduler.acquire("c.example.com");
+	}
+
+	private Content content(String name, int size, String url) {
+		Content c = ContentType.MAP.newContent(null);
+		c.name = name;
+		c.fileSize = size;
+		c.downloads.add(new Content.Download(url, true, false, Content.DownloadState.OK));
+		return c;
+	}
+}
@@ -0,0 +1,77 @@
+package net.shrimpworks.unreal.archive.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalStoreTest {
+
+	@Test
+	public void storeDownloadDelete() throws IOException {
+		Path tmp = Files.createTempDirectory("test-local-store");
+		try {
+			Path file = Files.write(tmp.resolve("file one.txt"), "hello local store".getBytes());
+			Path copy = Files.write(tmp.resolve("file two.txt"), "hello local store".getBytes());
+
+			for (boolean link : new boolean[] { true, false }) {
+				Path root = tmp.resolve("store-" + link);
+				try (LocalStore store = new LocalStore(root, "http://files.local/archive", link, Transfers.defaults())) {
+					String url = store.storeAsync(file, "maps/file one.txt").join();
+					assertTrue(url.startsWith("http://files.local/archive/"));
+					assertTrue(url.endsWith("/file%20one.txt"));
+
+					// stable URL for the same content and name
+					assertEquals(url, store.storeAsync(file, "other/path/file one.txt").join());
+
+					// same content, different name, is stored alongside the first
+					String other = store.storeAsync(copy, "maps/file two.txt").join();
+					assertEquals(url.substring(0, url.lastIndexOf('/')), other.substring(0, other.lastIndexOf('/')));
+
+					Path downloaded = store.downloadAsync(other).join();
+					try {
+						assertEquals("hello local store", Files.readString(downloaded));
+					} finally {
+						Files.deleteIfExists(downloaded);
+					}
+
+					store.delete(url, d -> assertTrue(d));
+					store.delete(url, d -> assertFalse(d));
+					store.delete(other, d -> assertTrue(d));
+
+					// no stored files or directories remain, other than the shard directory
+					try (Stream<Path> files = Files.walk(root)) {
+						assertEquals(0, files.filter(Files::isRegularFile).count());
+					}
+
+					assertThrows(IllegalArgumentException.class, () -> store.delete("http://elsewhere/file.txt", d -> {}));
+				}
+			}
+
+			// without a base URL, file URLs are used, and characters needing encoding are only encoded once
+			try (LocalStore store = new LocalStore(tmp.resolve("store file"), null, false, Transfers.defaults())) {
+				String url = store.storeAsync(file, "file one+two.txt").join();
+				assertTrue(url.startsWith("file:"));
+				assertTrue(url.contains("/store%20file/"));
+				assertTrue(url.endsWith("/file%20one%2Btwo.txt"));
+
+				Path downloaded = store.downloadAsync(url).join();
+				try {
+					assertEquals("hello local store", Files.readString(downloaded));
+				} finally {
+					Files.deleteIfExists(downloaded);
+				}
+
+				store.delete(url, d -> assertTrue(d));
+			}
+		} finally {
+			ArchiveUtil.cleanPath(tmp);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package net.shrimpworks.unreal.archive.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransfersTest {
+
+	@Test
+	public void retryTransfers() {
+		try (Transfers transfers = new Transfers(2, 2, Duration.ofMillis(1))) {
+			// succeeds on the final retry
+			AtomicInteger attempts = new AtomicInteger();
+			CompletableFuture<String> flaky = transfers.submit(() -> {
+				if (attempts.incrementAndGet() < 3) throw new IOException("failed");
+				return "ok";
+			});
+			assertEquals("ok", flaky.join());
+			assertEquals(3, attempts.get());
+
+			// retries exhausted
+			AtomicInteger failures = new AtomicInteger();
+			CompletableFuture<String> broken = transfers.submit(() -> {
+				failures.incrementAndGet();
+				throw new IOException("failed");
+			});
+			CompletionException e = assertThrows(CompletionException.class, broken::join);
+			assertTrue(e.getCause() instanceof IOException);
+			assertEquals(3, failures.get());
+
+			// other failures are not retried
+			AtomicInteger errors = new AtomicInteger();
+			CompletableFuture<String> error = transfers.submit(() -> {
+				errors.incrementAndGet();
+				throw new IllegalStateException("broken");
+			});
+			assertThrows(CompletionException.class, error::join);
+			assertEquals(1, errors.get());
+		}
+	}
+
+	@Test
+	public void storeAll() {
+		Map<Path, String> files = new LinkedHashMap<>();
+		files.put(Paths.get("a.txt"), "files/a.txt");
+		files.put(Paths.get("b.txt"), "files/b.txt");
+
+		Map<String, String> stored = new DataStore.NopStore().storeAll(files).join();
+		assertEquals("nop://files/a.txt", stored.get("files/a.txt"));
+		assertEquals("nop://files/b.txt", stored.get("files/b.txt"));
+	}
+}
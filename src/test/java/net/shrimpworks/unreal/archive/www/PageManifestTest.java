@@ -0,0 +1,68 @@
+package net.shrimpworks.unreal.archive.www;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+
+import net.shrimpworks.unreal.archive.ArchiveUtil;
+import net.shrimpworks.unreal.archive.content.ContentType;
+import net.shrimpworks.unreal.archive.content.maps.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageManifestTest {
+
+	@Test
+	public void incrementalPages() throws IOException {
+		Path tmp = Files.createTempDirectory("test-manifest");
+		try {
+			Path manifestPath = tmp.resolve(".manifest");
+			Path page = Files.write(tmp.resolve("page.html"), "hello".getBytes());
+			Path other = Files.write(tmp.resolve("other.html"), "hello".getBytes());
+
+			Map map = ContentType.MAP.newContent(null);
+			map.name = "DM-Test";
+			map.hash = String.format("%040x", map.name.hashCode());
+
+			java.util.Map<String, String> revisions = new HashMap<>();
+			revisions.put(map.hash, "1");
+
+			// first build renders everything
+			PageManifest first = PageManifest.load(tmp, manifestPath, true, revisions::get);
+			assertFalse(first.unchanged(page, first.fingerprint("map.ftl", List.of(map))));
+			assertFalse(first.unchanged(other, null));
+			first.save();
+
+			// nothing changed, so the page with dependencies is skipped
+			PageManifest second = PageManifest.load(tmp, manifestPath, true, revisions::get);
+			assertTrue(second.unchanged(page, second.fingerprint("map.ftl", List.of(map))));
+			assertFalse(second.unchanged(other, null));
+			assertEquals(1, second.skipped());
+			second.save();
+
+			// content revision changed, page is rendered again
+			revisions.put(map.hash, "2");
+			PageManifest third = PageManifest.load(tmp, manifestPath, true, revisions::get);
+			assertFalse(third.unchanged(page, third.fingerprint("map.ftl", List.of(map))));
+
+			// other.html was not output by this build, and is removed
+			assertEquals(1, third.prune());
+			assertTrue(Files.exists(page));
+			assertFalse(Files.exists(other));
+
+			// the templates in use are also recorded
+			assertFalse(Templates.version().startsWith("unknown"));
+			assertEquals(Templates.version(), Templates.version());
+
+			// different build options invalidate the previous manifest
+			PageManifest fourth = PageManifest.load(tmp, manifestPath, true, revisions::get, "different");
+			assertFalse(fourth.unchanged(page, fourth.fingerprint("map.ftl", List.of(map))));
+		} finally {
+			ArchiveUtil.cleanPath(tmp);
+		}
+	}
+}